@@ -0,0 +1,89 @@
+package info.kgeorgiy.ja.koloskov.walk.benchmark;
+
+import info.kgeorgiy.ja.koloskov.walk.Crc32cFileHasher;
+import info.kgeorgiy.ja.koloskov.walk.FileHasher;
+import info.kgeorgiy.ja.koloskov.walk.MyFileHasher;
+import info.kgeorgiy.ja.koloskov.walk.ReadStrategy;
+import info.kgeorgiy.ja.koloskov.walk.XxHash64FileHasher;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.NoSuchAlgorithmException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FileHasherBenchmark {
+
+    @Param({"SHA-256", "MD5", "XXH64", "CRC32C"})
+    public String algorithm;
+
+    @Param({"4096", "1048576", "67108864"})
+    public long fileSize;
+
+    @Param({"8192", "65536"})
+    public int bufferSize;
+
+    @Param({"false", "true"})
+    public boolean direct;
+
+    // Files at least this large are memory-mapped; Long.MAX_VALUE disables mapping
+    @Param({"9223372036854775807", "1048576"})
+    public long mapThreshold;
+
+    private Path file;
+    private FileHasher hasher;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException, NoSuchAlgorithmException {
+        file = Files.createTempFile("walk-bench", ".bin");
+        final Random random = new Random(fileSize);
+        final byte[] block = new byte[64 * 1024];
+        try (final OutputStream out = Files.newOutputStream(file)) {
+            for (long left = fileSize; left > 0; left -= block.length) {
+                random.nextBytes(block);
+                out.write(block, 0, (int) Math.min(left, block.length));
+            }
+        }
+        final ReadStrategy strategy = ReadStrategy.DEFAULT
+                .withDirect(direct)
+                .withBufferSize(bufferSize)
+                .withMapThreshold(mapThreshold);
+        hasher = switch (algorithm) {
+            case XxHash64FileHasher.ALGORITHM -> new XxHash64FileHasher(8, strategy);
+            case Crc32cFileHasher.ALGORITHM -> new Crc32cFileHasher(4, strategy);
+            default -> new MyFileHasher(algorithm, 8, strategy);
+        };
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    public String hash(final WalkCounters counters) throws IOException {
+        final String hash = hasher.getHash(file);
+        counters.add(1, fileSize);
+        return hash;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,75 @@
+package info.kgeorgiy.ja.koloskov.walk.benchmark;
+
+import info.kgeorgiy.ja.koloskov.walk.LineScanner;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+// Run with "-prof gc" to compare allocation rates of the two readers
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class LineScannerBenchmark {
+
+    @Param({"100000"})
+    public int lines;
+
+    private Path input;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        input = Files.createTempFile("walk-bench", ".in");
+        try (final Writer writer = Files.newBufferedWriter(input, StandardCharsets.UTF_8)) {
+            for (int i = 0; i < lines; i++) {
+                writer.write("/some/fairly/long/directory/name/юникод/file-" + i + ".txt\n");
+            }
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(input);
+    }
+
+    @Benchmark
+    public void lineScanner(final Blackhole blackhole) throws IOException {
+        try (final LineScanner scanner = new LineScanner(FileChannel.open(input))) {
+            CharSequence line;
+            while ((line = scanner.nextLine()) != null) {
+                blackhole.consume(line.length());
+            }
+        }
+    }
+
+    @Benchmark
+    public void bufferedReader(final Blackhole blackhole) throws IOException {
+        try (final BufferedReader reader = Files.newBufferedReader(input, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                blackhole.consume(line.length());
+            }
+        }
+    }
+}
\ No newline at end of file
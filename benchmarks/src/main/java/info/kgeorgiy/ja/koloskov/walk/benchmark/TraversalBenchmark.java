@@ -0,0 +1,84 @@
+package info.kgeorgiy.ja.koloskov.walk.benchmark;
+
+import info.kgeorgiy.ja.koloskov.walk.FileTreeTraverser;
+import info.kgeorgiy.ja.koloskov.walk.HashFileVisitor;
+import info.kgeorgiy.ja.koloskov.walk.HashPipeline;
+import info.kgeorgiy.ja.koloskov.walk.ParallelFileTreeTraverser;
+import info.kgeorgiy.ja.koloskov.walk.ReadStrategy;
+import info.kgeorgiy.ja.koloskov.walk.XxHash64FileHasher;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class TraversalBenchmark {
+
+    @Param({"TINY_FILES", "DEEP", "WIDE"})
+    public TreeShape shape;
+
+    // 1 walks with Files.walkFileTree, more uses ParallelFileTreeTraverser
+    @Param({"1", "4"})
+    public int traversalThreads;
+
+    @Param({"true", "false"})
+    public boolean ordered;
+
+    private Path root;
+    private ForkJoinPool pool;
+    private FileTreeTraverser traverser;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        root = shape.create();
+        if (traversalThreads > 1) {
+            pool = new ForkJoinPool(traversalThreads);
+            traverser = new ParallelFileTreeTraverser(pool, ordered);
+        } else {
+            traverser = FileTreeTraverser.SEQUENTIAL;
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        if (pool != null) {
+            pool.shutdown();
+        }
+    }
+
+    @Benchmark
+    public void traverse(final WalkCounters counters, final Blackhole blackhole)
+            throws IOException, NoSuchAlgorithmException {
+        final HashPipeline.HasherFactory factory =
+                () -> new XxHash64FileHasher(8, ReadStrategy.DEFAULT);
+        try (final HashPipeline pipeline = new HashPipeline(
+                factory,
+                1,
+                result -> blackhole.consume(result.hash()),
+                null
+        )) {
+            traverser.walk(root, Integer.MAX_VALUE, new HashFileVisitor(pipeline));
+        }
+        counters.add(shape.totalFiles(), shape.totalBytes());
+    }
+}
\ No newline at end of file
@@ -0,0 +1,66 @@
+package info.kgeorgiy.ja.koloskov.walk.benchmark;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+public enum TreeShape {
+    TINY_FILES(1, 10_000, 64),
+    HUGE_FILES(1, 4, 64L << 20),
+    DEEP(64, 4, 4096),
+    WIDE(1, 2_000, 4096);
+
+    private static final String READY_MARKER = ".ready";
+
+    private final int depth;
+    private final int filesPerDirectory;
+    private final long fileSize;
+
+    TreeShape(final int depth, final int filesPerDirectory, final long fileSize) {
+        this.depth = depth;
+        this.filesPerDirectory = filesPerDirectory;
+        this.fileSize = fileSize;
+    }
+
+    // Generates the tree once under java.io.tmpdir and reuses it across forks
+    public Path create() throws IOException {
+        final Path root = Path.of(System.getProperty("java.io.tmpdir"), "walk-bench", name());
+        if (Files.exists(root.resolve(READY_MARKER))) {
+            return root;
+        }
+        final Random random = new Random(name().hashCode());
+        final byte[] block = new byte[64 * 1024];
+        Path directory = root;
+        for (int level = 0; level < depth; level++) {
+            Files.createDirectories(directory);
+            for (int i = 0; i < filesPerDirectory; i++) {
+                write(directory.resolve("f" + i), random, block);
+            }
+            directory = directory.resolve("d" + level);
+        }
+        Files.createFile(root.resolve(READY_MARKER));
+        return root;
+    }
+
+    public long totalBytes() {
+        return depth * filesPerDirectory * fileSize;
+    }
+
+    public long totalFiles() {
+        return (long) depth * filesPerDirectory;
+    }
+
+    private void write(final Path file, final Random random, final byte[] block) throws IOException {
+        try (final OutputStream out = Files.newOutputStream(file)) {
+            long left = fileSize;
+            while (left > 0) {
+                random.nextBytes(block);
+                final int length = (int) Math.min(left, block.length);
+                out.write(block, 0, length);
+                left -= length;
+            }
+        }
+    }
+}
\ No newline at end of file
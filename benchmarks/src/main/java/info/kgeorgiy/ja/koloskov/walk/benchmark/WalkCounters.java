@@ -0,0 +1,27 @@
+package info.kgeorgiy.ja.koloskov.walk.benchmark;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+// Reported by JMH next to the primary score as files/s and bytes/s
+@State(Scope.Thread)
+@AuxCounters(AuxCounters.Type.OPERATIONS)
+public class WalkCounters {
+
+    public long files;
+    public long bytes;
+
+    @Setup(Level.Iteration)
+    public void reset() {
+        files = 0;
+        bytes = 0;
+    }
+
+    public void add(final long files, final long bytes) {
+        this.files += files;
+        this.bytes += bytes;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,84 @@
+package info.kgeorgiy.ja.koloskov.walk.benchmark;
+
+import info.kgeorgiy.ja.koloskov.walk.Walker;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class WalkerBenchmark {
+
+    @Param({"TINY_FILES", "HUGE_FILES", "DEEP", "WIDE"})
+    public TreeShape shape;
+
+    @Param({"SHA-256", "XXH64"})
+    public String algorithm;
+
+    @Param({"SINGLE", "POOL", "VIRTUAL"})
+    public Hashing hashing;
+
+    @Param({"false", "true"})
+    public boolean asyncOutput;
+
+    private Path input;
+    private Path output;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        final Path root = shape.create();
+        input = Files.createTempFile("walk-bench", ".in");
+        output = Files.createTempFile("walk-bench", ".out");
+        Files.writeString(input, root + System.lineSeparator());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(input);
+        Files.deleteIfExists(output);
+    }
+
+    @Benchmark
+    public void walk(final WalkCounters counters) {
+        new Walker()
+                .threads(hashing.threads)
+                .virtualThreads(hashing.virtualThreads)
+                .asyncOutput(asyncOutput)
+                .walk(new String[]{input.toString(), output.toString(), algorithm});
+        counters.add(shape.totalFiles(), shape.totalBytes());
+    }
+
+    // One value per distinct pipeline. With virtual threads the thread count is unused and only
+    // the open-file cap matters, so the two are not crossed
+    public enum Hashing {
+        SINGLE(1, 0),
+        POOL(4, 0),
+        VIRTUAL(1, 256);
+
+        private final int threads;
+        private final int virtualThreads;
+
+        Hashing(final int threads, final int virtualThreads) {
+            this.threads = threads;
+            this.virtualThreads = virtualThreads;
+        }
+    }
+}
\ No newline at end of file
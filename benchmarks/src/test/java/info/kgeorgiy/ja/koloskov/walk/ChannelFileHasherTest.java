@@ -0,0 +1,30 @@
+package info.kgeorgiy.ja.koloskov.walk;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.NoSuchAlgorithmException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class ChannelFileHasherTest {
+
+    @TempDir
+    Path root;
+
+    // The small-file read is sized from attributes taken before the file grew
+    @Test
+    void smallFileGrownAfterWalkIsHashedWhole() throws IOException, NoSuchAlgorithmException {
+        final Path file = root.resolve("file");
+        Files.writeString(file, "small");
+        final BasicFileAttributes attrs = Files.readAttributes(file, BasicFileAttributes.class);
+        Files.writeString(file, " and then some more", StandardOpenOption.APPEND);
+
+        final ChannelFileHasher hasher = new MyFileHasher("SHA-256", -1);
+        assertEquals(hasher.getHash(file), hasher.getHash(file, attrs));
+    }
+}
\ No newline at end of file
@@ -0,0 +1,153 @@
+package info.kgeorgiy.ja.koloskov.walk;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class ChannelRecordWriterTest {
+
+    @TempDir
+    Path root;
+
+    // The first write to the channel fails, later records are still written
+    @Test
+    void writeErrorIsLoggedAndWritingContinues() throws IOException {
+        final Path output = root.resolve("output.txt");
+        try (final RecordWriter writer = new ChannelRecordWriter(new FailingOnceChannel(
+                FileChannel.open(output, StandardOpenOption.CREATE, StandardOpenOption.WRITE)
+        ))) {
+            writer.write("lost", "0");
+            writer.flush();
+            writer.write("kept", "1");
+            writer.flush();
+            writer.write("last", "2");
+        }
+        assertEquals(List.of("1 kept", "2 last"), Files.readAllLines(output));
+    }
+
+    private static final class FailingOnceChannel extends FileChannel {
+
+        private final FileChannel channel;
+        private boolean failed;
+
+        FailingOnceChannel(final FileChannel channel) {
+            this.channel = channel;
+        }
+
+        @Override
+        public int write(final ByteBuffer src) throws IOException {
+            if (!failed) {
+                failed = true;
+                throw new IOException("No space left on device");
+            }
+            return channel.write(src);
+        }
+
+        @Override
+        public int read(final ByteBuffer dst) throws IOException {
+            return channel.read(dst);
+        }
+
+        @Override
+        public long read(final ByteBuffer[] dsts, final int offset, final int length)
+                throws IOException {
+            return channel.read(dsts, offset, length);
+        }
+
+        @Override
+        public long write(final ByteBuffer[] srcs, final int offset, final int length)
+                throws IOException {
+            return channel.write(srcs, offset, length);
+        }
+
+        @Override
+        public long position() throws IOException {
+            return channel.position();
+        }
+
+        @Override
+        public FileChannel position(final long newPosition) throws IOException {
+            channel.position(newPosition);
+            return this;
+        }
+
+        @Override
+        public long size() throws IOException {
+            return channel.size();
+        }
+
+        @Override
+        public FileChannel truncate(final long size) throws IOException {
+            channel.truncate(size);
+            return this;
+        }
+
+        @Override
+        public void force(final boolean metaData) throws IOException {
+            channel.force(metaData);
+        }
+
+        @Override
+        public long transferTo(
+                final long position,
+                final long count,
+                final WritableByteChannel target
+        ) throws IOException {
+            return channel.transferTo(position, count, target);
+        }
+
+        @Override
+        public long transferFrom(
+                final ReadableByteChannel src,
+                final long position,
+                final long count
+        ) throws IOException {
+            return channel.transferFrom(src, position, count);
+        }
+
+        @Override
+        public int read(final ByteBuffer dst, final long position) throws IOException {
+            return channel.read(dst, position);
+        }
+
+        @Override
+        public int write(final ByteBuffer src, final long position) throws IOException {
+            return channel.write(src, position);
+        }
+
+        @Override
+        public MappedByteBuffer map(final MapMode mode, final long position, final long size)
+                throws IOException {
+            return channel.map(mode, position, size);
+        }
+
+        @Override
+        public FileLock lock(final long position, final long size, final boolean shared)
+                throws IOException {
+            return channel.lock(position, size, shared);
+        }
+
+        @Override
+        public FileLock tryLock(final long position, final long size, final boolean shared)
+                throws IOException {
+            return channel.tryLock(position, size, shared);
+        }
+
+        @Override
+        protected void implCloseChannel() throws IOException {
+            channel.close();
+        }
+    }
+}
\ No newline at end of file
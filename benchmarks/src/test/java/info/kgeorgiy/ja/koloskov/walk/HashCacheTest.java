@@ -0,0 +1,46 @@
+package info.kgeorgiy.ja.koloskov.walk;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+class HashCacheTest {
+
+    private static final String SIGNATURE = "SHA-256";
+
+    @TempDir
+    Path root;
+
+    // The length of the first cached path is overwritten with one that cannot be valid
+    @ParameterizedTest
+    @ValueSource(ints = {-1, Integer.MAX_VALUE})
+    void corruptLengthStartsEmpty(final int length) throws IOException {
+        final Path file = root.resolve("file");
+        Files.writeString(file, "file");
+        final BasicFileAttributes attrs = Files.readAttributes(file, BasicFileAttributes.class);
+        final Path cacheFile = root.resolve("cache");
+        final HashCache cache = HashCache.load(cacheFile, SIGNATURE);
+        cache.put(file, attrs, "hash");
+        cache.save();
+        assertEquals("hash", HashCache.load(cacheFile, SIGNATURE).get(file, attrs));
+
+        final int position = Integer.BYTES + Short.BYTES
+                + SIGNATURE.getBytes(StandardCharsets.UTF_8).length + Integer.BYTES;
+        try (final FileChannel channel = FileChannel.open(cacheFile, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.allocate(Integer.BYTES).putInt(0, length), position);
+        }
+
+        assertNull(HashCache.load(cacheFile, SIGNATURE).get(file, attrs));
+    }
+}
\ No newline at end of file
@@ -0,0 +1,34 @@
+package info.kgeorgiy.ja.koloskov.walk;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class ManifestDiffTest {
+
+    @TempDir
+    Path root;
+
+    @Test
+    void comparesAgainstStreamedManifest() throws IOException {
+        final Path manifest = root.resolve("manifest.txt");
+        Files.writeString(manifest, "aa same\r\n\nbb changed\ncc removed\ndd café\ncc removed\n");
+        final ManifestDiff diff = ManifestDiff.load(manifest, 1);
+
+        assertEquals(5, diff.size());
+        assertNull(diff.compare("same", "aa"));
+        assertEquals("~ b0", diff.compare("changed", "b0"));
+        assertNull(diff.compare("café", "dd"));
+        assertEquals("+ ee", diff.compare("added", "ee"));
+        final List<String> removed = new ArrayList<>();
+        diff.forEachRemoved((path, hash) -> removed.add(hash + " " + path));
+        assertEquals(List.of("- cc removed"), removed);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,75 @@
+package info.kgeorgiy.ja.koloskov.walk;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assumptions.assumeFalse;
+
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.NoSuchAlgorithmException;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ForkJoinPool;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+class ParallelFileTreeTraverserTest {
+
+    @TempDir
+    Path root;
+
+    // The excluded directory cannot be listed, so opening it would report a failure
+    @ParameterizedTest
+    @ValueSource(booleans = {true, false})
+    void excludedDirectoryIsNeverOpened(final boolean ordered)
+            throws IOException, NoSuchAlgorithmException {
+        final Path excluded = root.resolve("kept/excluded");
+        Files.createDirectories(excluded);
+        Files.createDirectories(root.resolve("kept/inner"));
+        Files.writeString(root.resolve("kept/a"), "a");
+        Files.writeString(root.resolve("kept/inner/b"), "b");
+        Files.writeString(excluded.resolve("c"), "c");
+        Files.setPosixFilePermissions(excluded, PosixFilePermissions.fromString("---------"));
+        final ForkJoinPool pool = new ForkJoinPool(2);
+        try {
+            assumeFalse(Files.isReadable(excluded), "Permissions are not enforced for this user");
+            final Set<String> hashed = ConcurrentHashMap.newKeySet();
+            final List<Path> failed = new CopyOnWriteArrayList<>();
+            final HashPipeline pipeline = new HashPipeline(
+                    () -> new MyFileHasher("MD5", -1),
+                    1,
+                    result -> hashed.add(result.path()),
+                    null
+            );
+            final HashFileVisitor visitor = new HashFileVisitor(
+                    pipeline,
+                    WalkFilter.ALL.withExclude("excluded")
+            ) {
+                @Override
+                public FileVisitResult visitFileFailed(final Path file, final IOException exc) {
+                    failed.add(file);
+                    return super.visitFileFailed(file, exc);
+                }
+            };
+
+            visitor.walk(new ParallelFileTreeTraverser(pool, ordered), root, Integer.MAX_VALUE);
+
+            assertEquals(List.of(), failed);
+            assertEquals(
+                    Set.of(
+                            root.resolve("kept/a").toString(),
+                            root.resolve("kept/inner/b").toString()
+                    ),
+                    hashed
+            );
+        } finally {
+            pool.shutdown();
+            Files.setPosixFilePermissions(excluded, PosixFilePermissions.fromString("rwx------"));
+        }
+    }
+}
\ No newline at end of file
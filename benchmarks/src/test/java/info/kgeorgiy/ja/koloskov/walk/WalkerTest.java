@@ -0,0 +1,77 @@
+package info.kgeorgiy.ja.koloskov.walk;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class WalkerTest {
+
+    @TempDir
+    Path root;
+
+    // Two of the three records saved for the resumed line are gone, so the line now yields
+    // fewer records than the journal skips
+    @Test
+    void resumeAfterTreeShrinksKeepsNextLines() throws IOException {
+        final Path dir = root.resolve("dir");
+        Files.createDirectories(dir);
+        for (final String name : List.of("a", "b", "c")) {
+            Files.writeString(dir.resolve(name), name);
+        }
+        final Path file = root.resolve("file");
+        Files.writeString(file, "file");
+        final Path input = root.resolve("input.txt");
+        final Path output = root.resolve("output.txt");
+        final Path journal = root.resolve("journal");
+        Files.write(input, List.of(dir.toString(), file.toString()));
+
+        walk(new Walker(), input, output);
+        final List<String> full = Files.readAllLines(output);
+        assertEquals(4, full.size());
+
+        // Checkpoint after the first two records of the directory line
+        final long offset = (full.get(0) + "\n" + full.get(1) + "\n")
+                .getBytes(StandardCharsets.UTF_8).length;
+        final String signature = input.toAbsolutePath() + "|" + output.toAbsolutePath()
+                + "|SHA-256";
+        try (final RecordWriter writer = new BufferedRecordWriter(
+                Files.newBufferedWriter(output)
+        )) {
+            writer.write(path(full.get(0)), hash(full.get(0)));
+            writer.write(path(full.get(1)), hash(full.get(1)));
+            new CheckpointJournal(
+                    journal,
+                    signature,
+                    new CheckpointJournal.Checkpoint(0, 2, offset),
+                    writer,
+                    output,
+                    0,
+                    true
+            ).checkpoint();
+        }
+        Files.delete(Path.of(path(full.get(0))));
+        Files.delete(Path.of(path(full.get(1))));
+
+        walk(new Walker().journalFile(journal), input, output);
+
+        assertEquals(List.of(full.get(0), full.get(1), full.get(3)), Files.readAllLines(output));
+    }
+
+    private static void walk(final Walker walker, final Path input, final Path output) {
+        walker.walk(new String[]{input.toString(), output.toString()});
+    }
+
+    private static String hash(final String line) {
+        return line.substring(0, line.indexOf(' '));
+    }
+
+    private static String path(final String line) {
+        return line.substring(line.indexOf(' ') + 1);
+    }
+}
\ No newline at end of file
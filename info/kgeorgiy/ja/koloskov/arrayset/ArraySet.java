@@ -3,6 +3,7 @@ package info.kgeorgiy.ja.koloskov.arrayset;
 import info.kgeorgiy.java.advanced.arrayset.AdvancedSet;
 import java.util.AbstractSet;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
@@ -11,20 +12,30 @@ import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.SortedSet;
-import java.util.TreeSet;
 
 public class ArraySet<T> extends AbstractSet<T> implements AdvancedSet<T> {
 
     private final List<T> elements;
     private final Comparator<? super T> comparator;
+    // Optional search layout over elements, iteration always uses the list itself
+    private final StaticBTreeIndex<T> searchIndex;
 
     public ArraySet() {
         this(List.of(), null);
     }
 
     private ArraySet(final List<T> elements, final Comparator<? super T> comparator) {
+        this(elements, comparator, null);
+    }
+
+    private ArraySet(
+            final List<T> elements,
+            final Comparator<? super T> comparator,
+            final StaticBTreeIndex<T> searchIndex
+    ) {
         this.elements = elements;
         this.comparator = comparator;
+        this.searchIndex = searchIndex;
     }
 
     public ArraySet(final Collection<? extends T> collection) {
@@ -35,31 +46,74 @@ public class ArraySet<T> extends AbstractSet<T> implements AdvancedSet<T> {
             final Collection<? extends T> collection,
             final Comparator<? super T> comparator
     ) {
-        this.elements = Collections.unmodifiableList(new ArrayList<>(getSortedSet(
-                collection,
-                comparator
-        )));
+        this.elements = Collections.unmodifiableList(getSortedList(collection, comparator));
         this.comparator = comparator;
+        this.searchIndex = null;
     }
 
-    private SortedSet<? extends T> getSortedSet(
+    private static <T> List<T> getSortedList(
             final Collection<? extends T> collection,
             final Comparator<? super T> comparator
     ) {
+        @SuppressWarnings("unchecked")
+        final T[] elements = (T[]) collection.toArray();
         if (collection instanceof final SortedSet<? extends T> set && Objects.equals(
                 set.comparator(), comparator)
         ) {
-            return set;
+            return Arrays.asList(elements);
+        }
+        final Comparator<? super T> order = getComparator(comparator);
+        if (elements.length == 1) {
+            // A single element is never compared otherwise, so it is checked as TreeMap.put does
+            order.compare(elements[0], elements[0]);
+        }
+        final int size = sortDistinct(elements, elements.length, order);
+        return Arrays.asList(size == elements.length ? elements : Arrays.copyOf(elements, size));
+    }
+
+    // Compacts a sorted prefix in place, dropping later duplicates as TreeSet does. The first
+    // element out of order sorts the rest together with that prefix, so sorted and nearly
+    // sorted input costs a linear pass. Returns the number of distinct elements kept
+    private static <T> int sortDistinct(
+            final T[] elements,
+            final int length,
+            final Comparator<? super T> comparator
+    ) {
+        int size = 0;
+        for (int i = 0; i < length; i++) {
+            if (size > 0) {
+                final int order = comparator.compare(elements[size - 1], elements[i]);
+                if (order > 0) {
+                    System.arraycopy(elements, i, elements, size, length - i);
+                    Arrays.sort(elements, 0, size + length - i, comparator);
+                    return sortDistinct(elements, size + length - i, comparator);
+                }
+                if (order == 0) {
+                    continue;
+                }
+            }
+            elements[size++] = elements[i];
         }
-        final var set = new TreeSet<T>(comparator);
-        set.addAll(collection);
-        return set;
+        return size;
     }
 
     public ArraySet(final Comparator<? super T> comparator) {
         this(List.of(), comparator);
     }
 
+    // Same set with a cache-friendly search index for sets of millions of elements whose objects
+    // are laid out roughly in order. Views of the result share the index
+    public ArraySet<T> indexed() {
+        if (searchIndex != null) {
+            return this;
+        }
+        return new ArraySet<>(
+                elements,
+                comparator,
+                new StaticBTreeIndex<>(elements, getComparator())
+        );
+    }
+
     @Override
     public T lower(final T t) {
         return get(findBoundaryIndex(t, false, true));
@@ -92,7 +146,11 @@ public class ArraySet<T> extends AbstractSet<T> implements AdvancedSet<T> {
 
     @Override
     public ArraySet<T> descendingSet() {
-        return new ArraySet<>(elements.reversed(), getComparator().reversed());
+        return new ArraySet<>(
+                elements.reversed(),
+                getComparator().reversed(),
+                searchIndex == null ? null : searchIndex.descending()
+        );
     }
 
     @Override
@@ -113,10 +171,158 @@ public class ArraySet<T> extends AbstractSet<T> implements AdvancedSet<T> {
     @SuppressWarnings("unchecked")
     @Override
     public boolean contains(final Object o) {
-        return Collections.binarySearch(elements, (T) o, getComparator()) >= 0;
+        return search((T) o) >= 0;
+    }
+
+    // With another ArraySet in the same order this is a single merge pass
+    @Override
+    public boolean containsAll(final Collection<?> collection) {
+        if (!(collection instanceof final ArraySet<?> set) || !sameOrder(set)) {
+            return super.containsAll(collection);
+        }
+        @SuppressWarnings("unchecked")
+        final List<? extends T> other = ((ArraySet<? extends T>) set).elements;
+        final Comparator<? super T> order = getComparator();
+        int index = 0;
+        for (final T element : other) {
+            index = gallop(elements, index, element, order);
+            if (index == size() || order.compare(elements.get(index), element) != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Set algebra merges both sorted lists, galloping over long runs from one side, so skewed
+    // sizes cost O(m log(n / m)) comparisons. Equal elements are taken from this set. Operands
+    // in a different order are first copied into an ArraySet with this set's comparator
+    public ArraySet<T> union(final Collection<? extends T> collection) {
+        final List<? extends T> other = sortedElements(collection);
+        final Comparator<? super T> order = getComparator();
+        final ArrayList<T> result = new ArrayList<>(size() + other.size());
+        int i = 0;
+        int j = 0;
+        while (i < size() && j < other.size()) {
+            final int next = gallop(elements, i, other.get(j), order);
+            result.addAll(elements.subList(i, next));
+            i = next;
+            if (i == size()) {
+                break;
+            }
+            if (order.compare(elements.get(i), other.get(j)) == 0) {
+                j++;
+            } else {
+                final int nextOther = gallop(other, j, elements.get(i), order);
+                result.addAll(other.subList(j, nextOther));
+                j = nextOther;
+            }
+        }
+        result.addAll(elements.subList(i, size()));
+        result.addAll(other.subList(j, other.size()));
+        return fromMerged(result);
+    }
+
+    public ArraySet<T> intersection(final Collection<? extends T> collection) {
+        final List<? extends T> other = sortedElements(collection);
+        final Comparator<? super T> order = getComparator();
+        final ArrayList<T> result = new ArrayList<>(Math.min(size(), other.size()));
+        int i = 0;
+        int j = 0;
+        while (i < size() && j < other.size()) {
+            i = gallop(elements, i, other.get(j), order);
+            if (i == size()) {
+                break;
+            }
+            if (order.compare(elements.get(i), other.get(j)) == 0) {
+                result.add(elements.get(i++));
+                j++;
+            } else {
+                j = gallop(other, j, elements.get(i), order);
+            }
+        }
+        return fromMerged(result);
+    }
+
+    public ArraySet<T> difference(final Collection<? extends T> collection) {
+        final List<? extends T> other = sortedElements(collection);
+        final Comparator<? super T> order = getComparator();
+        final ArrayList<T> result = new ArrayList<>(size());
+        int i = 0;
+        int j = 0;
+        while (i < size()) {
+            j = gallop(other, j, elements.get(i), order);
+            if (j == other.size()) {
+                break;
+            }
+            if (order.compare(elements.get(i), other.get(j)) == 0) {
+                i++;
+                j++;
+            } else {
+                final int next = gallop(elements, i, other.get(j), order);
+                result.addAll(elements.subList(i, next));
+                i = next;
+            }
+        }
+        result.addAll(elements.subList(i, size()));
+        return fromMerged(result);
+    }
+
+    private boolean sameOrder(final ArraySet<?> set) {
+        return getComparator().equals(set.getComparator());
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<? extends T> sortedElements(final Collection<? extends T> collection) {
+        if (collection instanceof final ArraySet<?> set && sameOrder(set)) {
+            return ((ArraySet<? extends T>) set).elements;
+        }
+        return new ArraySet<T>(collection, comparator).elements;
+    }
+
+    private ArraySet<T> fromMerged(final ArrayList<T> merged) {
+        merged.trimToSize();
+        return new ArraySet<>(Collections.unmodifiableList(merged), comparator);
+    }
+
+    // Index of the first element of the list from the given index on that is not less than val,
+    // found by doubling the step and then searching the last step
+    private static <T> int gallop(
+            final List<? extends T> list,
+            final int from,
+            final T val,
+            final Comparator<? super T> order
+    ) {
+        int low = from;
+        int high = from;
+        int step = 1;
+        while (high < list.size() && order.compare(list.get(high), val) < 0) {
+            low = high + 1;
+            high = from + step;
+            step <<= 1;
+        }
+        high = Math.min(high, list.size());
+        while (low < high) {
+            final int middle = (low + high) >>> 1;
+            if (order.compare(list.get(middle), val) < 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private int search(final T val) {
+        return searchIndex != null
+                ? searchIndex.search(val)
+                : Collections.binarySearch(elements, val, getComparator());
     }
 
     private Comparator<? super T> getComparator() {
+        return getComparator(comparator);
+    }
+
+    private static <T> Comparator<? super T> getComparator(final Comparator<? super T> comparator) {
         return Collections.reverseOrder(comparator).reversed();
     }
 
@@ -130,7 +336,7 @@ public class ArraySet<T> extends AbstractSet<T> implements AdvancedSet<T> {
     }
 
     private int findBoundaryIndex(final T val, final boolean includeEqual, final boolean moveLeft) {
-        final int index = Collections.binarySearch(elements, val, getComparator());
+        final int index = search(val);
         if (index >= 0) {
             return includeEqual ? index : index + (moveLeft ? -1 : 1);
         }
@@ -173,7 +379,11 @@ public class ArraySet<T> extends AbstractSet<T> implements AdvancedSet<T> {
     }
 
     private ArraySet<T> subSet(final int fromIndex, final int toIndex) {
-        return new ArraySet<>(elements.subList(fromIndex, toIndex), comparator);
+        return new ArraySet<>(
+                elements.subList(fromIndex, toIndex),
+                comparator,
+                searchIndex == null ? null : searchIndex.subRange(fromIndex, toIndex)
+        );
     }
 
     private int getToIndex(final T toElement, final boolean toInclusive) {
@@ -0,0 +1,141 @@
+package info.kgeorgiy.ja.koloskov.arrayset;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.OptionalDouble;
+
+// Sorted double array with unboxed lookups; the NavigableSet methods box only their results
+public class DoubleArraySet extends PrimitiveArraySet<Double, DoubleArraySet> {
+
+    private static final double[] EMPTY = new double[0];
+    private final double[] elements;
+
+    public DoubleArraySet() {
+        this(EMPTY);
+    }
+
+    public DoubleArraySet(final Collection<? extends Double> collection) {
+        this(distinct(collection.stream().mapToDouble(Double::doubleValue).toArray()));
+    }
+
+    private DoubleArraySet(final double[] sorted) {
+        this(sorted, 0, sorted.length, false);
+    }
+
+    private DoubleArraySet(
+            final double[] elements,
+            final int from,
+            final int to,
+            final boolean descending
+    ) {
+        super(from, to, descending);
+        this.elements = elements;
+    }
+
+    public static DoubleArraySet of(final double... elements) {
+        return new DoubleArraySet(distinct(elements.clone()));
+    }
+
+    // Sorts in place unless already sorted, then drops duplicates
+    private static double[] distinct(final double[] elements) {
+        int size = elements.length;
+        for (int i = 1; i < size; i++) {
+            if (Double.compare(elements[i - 1], elements[i]) >= 0) {
+                Arrays.sort(elements);
+                size = 1;
+                for (int j = 1; j < elements.length; j++) {
+                    if (Double.compare(elements[size - 1], elements[j]) != 0) {
+                        elements[size++] = elements[j];
+                    }
+                }
+                break;
+            }
+        }
+        return size == elements.length ? elements : Arrays.copyOf(elements, size);
+    }
+
+    public boolean contains(final double key) {
+        return Arrays.binarySearch(elements, from, to, key) >= 0;
+    }
+
+    public OptionalDouble lower(final double key) {
+        return get(descending ? ceilingIndex(key, false) : floorIndex(key, false));
+    }
+
+    public OptionalDouble floor(final double key) {
+        return get(descending ? ceilingIndex(key, true) : floorIndex(key, true));
+    }
+
+    public OptionalDouble ceiling(final double key) {
+        return get(descending ? floorIndex(key, true) : ceilingIndex(key, true));
+    }
+
+    public OptionalDouble higher(final double key) {
+        return get(descending ? floorIndex(key, false) : ceilingIndex(key, false));
+    }
+
+    // Elements in the order of this set
+    public double[] toDoubleArray() {
+        final double[] result = Arrays.copyOfRange(elements, from, to);
+        if (descending) {
+            for (int i = 0, j = result.length - 1; i < j; i++, j--) {
+                final double swap = result[i];
+                result[i] = result[j];
+                result[j] = swap;
+            }
+        }
+        return result;
+    }
+
+    private OptionalDouble get(final int index) {
+        return from <= index && index < to
+                ? OptionalDouble.of(elements[index])
+                : OptionalDouble.empty();
+    }
+
+    private int ceilingIndex(final double key, final boolean inclusive) {
+        final int index = Arrays.binarySearch(elements, from, to, key);
+        if (index >= 0) {
+            return inclusive ? index : index + 1;
+        }
+        return -index - 1;
+    }
+
+    private int floorIndex(final double key, final boolean inclusive) {
+        final int index = Arrays.binarySearch(elements, from, to, key);
+        if (index >= 0) {
+            return inclusive ? index : index - 1;
+        }
+        return -index - 2;
+    }
+
+    @Override
+    public boolean contains(final Object o) {
+        return o instanceof final Double key && contains(key.doubleValue());
+    }
+
+    @Override
+    protected Double box(final int index) {
+        return elements[index];
+    }
+
+    @Override
+    protected DoubleArraySet view(final int from, final int to, final boolean descending) {
+        return new DoubleArraySet(elements, from, to, descending);
+    }
+
+    @Override
+    protected int ceilingIndex(final Double key, final boolean inclusive) {
+        return ceilingIndex(key.doubleValue(), inclusive);
+    }
+
+    @Override
+    protected int floorIndex(final Double key, final boolean inclusive) {
+        return floorIndex(key.doubleValue(), inclusive);
+    }
+
+    @Override
+    protected int compare(final Double a, final Double b) {
+        return Double.compare(a, b);
+    }
+}
\ No newline at end of file
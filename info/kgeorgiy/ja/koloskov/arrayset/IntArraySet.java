@@ -0,0 +1,141 @@
+package info.kgeorgiy.ja.koloskov.arrayset;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.OptionalInt;
+
+// Sorted int array with unboxed lookups; the NavigableSet methods box only their results
+public class IntArraySet extends PrimitiveArraySet<Integer, IntArraySet> {
+
+    private static final int[] EMPTY = new int[0];
+    private final int[] elements;
+
+    public IntArraySet() {
+        this(EMPTY);
+    }
+
+    public IntArraySet(final Collection<? extends Integer> collection) {
+        this(distinct(collection.stream().mapToInt(Integer::intValue).toArray()));
+    }
+
+    private IntArraySet(final int[] sorted) {
+        this(sorted, 0, sorted.length, false);
+    }
+
+    private IntArraySet(
+            final int[] elements,
+            final int from,
+            final int to,
+            final boolean descending
+    ) {
+        super(from, to, descending);
+        this.elements = elements;
+    }
+
+    public static IntArraySet of(final int... elements) {
+        return new IntArraySet(distinct(elements.clone()));
+    }
+
+    // Sorts in place unless already sorted, then drops duplicates
+    private static int[] distinct(final int[] elements) {
+        int size = elements.length;
+        for (int i = 1; i < size; i++) {
+            if (Integer.compare(elements[i - 1], elements[i]) >= 0) {
+                Arrays.sort(elements);
+                size = 1;
+                for (int j = 1; j < elements.length; j++) {
+                    if (Integer.compare(elements[size - 1], elements[j]) != 0) {
+                        elements[size++] = elements[j];
+                    }
+                }
+                break;
+            }
+        }
+        return size == elements.length ? elements : Arrays.copyOf(elements, size);
+    }
+
+    public boolean contains(final int key) {
+        return Arrays.binarySearch(elements, from, to, key) >= 0;
+    }
+
+    public OptionalInt lower(final int key) {
+        return get(descending ? ceilingIndex(key, false) : floorIndex(key, false));
+    }
+
+    public OptionalInt floor(final int key) {
+        return get(descending ? ceilingIndex(key, true) : floorIndex(key, true));
+    }
+
+    public OptionalInt ceiling(final int key) {
+        return get(descending ? floorIndex(key, true) : ceilingIndex(key, true));
+    }
+
+    public OptionalInt higher(final int key) {
+        return get(descending ? floorIndex(key, false) : ceilingIndex(key, false));
+    }
+
+    // Elements in the order of this set
+    public int[] toIntArray() {
+        final int[] result = Arrays.copyOfRange(elements, from, to);
+        if (descending) {
+            for (int i = 0, j = result.length - 1; i < j; i++, j--) {
+                final int swap = result[i];
+                result[i] = result[j];
+                result[j] = swap;
+            }
+        }
+        return result;
+    }
+
+    private OptionalInt get(final int index) {
+        return from <= index && index < to
+                ? OptionalInt.of(elements[index])
+                : OptionalInt.empty();
+    }
+
+    private int ceilingIndex(final int key, final boolean inclusive) {
+        final int index = Arrays.binarySearch(elements, from, to, key);
+        if (index >= 0) {
+            return inclusive ? index : index + 1;
+        }
+        return -index - 1;
+    }
+
+    private int floorIndex(final int key, final boolean inclusive) {
+        final int index = Arrays.binarySearch(elements, from, to, key);
+        if (index >= 0) {
+            return inclusive ? index : index - 1;
+        }
+        return -index - 2;
+    }
+
+    @Override
+    public boolean contains(final Object o) {
+        return o instanceof final Integer key && contains(key.intValue());
+    }
+
+    @Override
+    protected Integer box(final int index) {
+        return elements[index];
+    }
+
+    @Override
+    protected IntArraySet view(final int from, final int to, final boolean descending) {
+        return new IntArraySet(elements, from, to, descending);
+    }
+
+    @Override
+    protected int ceilingIndex(final Integer key, final boolean inclusive) {
+        return ceilingIndex(key.intValue(), inclusive);
+    }
+
+    @Override
+    protected int floorIndex(final Integer key, final boolean inclusive) {
+        return floorIndex(key.intValue(), inclusive);
+    }
+
+    @Override
+    protected int compare(final Integer a, final Integer b) {
+        return Integer.compare(a, b);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,141 @@
+package info.kgeorgiy.ja.koloskov.arrayset;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.OptionalLong;
+
+// Sorted long array with unboxed lookups; the NavigableSet methods box only their results
+public class LongArraySet extends PrimitiveArraySet<Long, LongArraySet> {
+
+    private static final long[] EMPTY = new long[0];
+    private final long[] elements;
+
+    public LongArraySet() {
+        this(EMPTY);
+    }
+
+    public LongArraySet(final Collection<? extends Long> collection) {
+        this(distinct(collection.stream().mapToLong(Long::longValue).toArray()));
+    }
+
+    private LongArraySet(final long[] sorted) {
+        this(sorted, 0, sorted.length, false);
+    }
+
+    private LongArraySet(
+            final long[] elements,
+            final int from,
+            final int to,
+            final boolean descending
+    ) {
+        super(from, to, descending);
+        this.elements = elements;
+    }
+
+    public static LongArraySet of(final long... elements) {
+        return new LongArraySet(distinct(elements.clone()));
+    }
+
+    // Sorts in place unless already sorted, then drops duplicates
+    private static long[] distinct(final long[] elements) {
+        int size = elements.length;
+        for (int i = 1; i < size; i++) {
+            if (Long.compare(elements[i - 1], elements[i]) >= 0) {
+                Arrays.sort(elements);
+                size = 1;
+                for (int j = 1; j < elements.length; j++) {
+                    if (Long.compare(elements[size - 1], elements[j]) != 0) {
+                        elements[size++] = elements[j];
+                    }
+                }
+                break;
+            }
+        }
+        return size == elements.length ? elements : Arrays.copyOf(elements, size);
+    }
+
+    public boolean contains(final long key) {
+        return Arrays.binarySearch(elements, from, to, key) >= 0;
+    }
+
+    public OptionalLong lower(final long key) {
+        return get(descending ? ceilingIndex(key, false) : floorIndex(key, false));
+    }
+
+    public OptionalLong floor(final long key) {
+        return get(descending ? ceilingIndex(key, true) : floorIndex(key, true));
+    }
+
+    public OptionalLong ceiling(final long key) {
+        return get(descending ? floorIndex(key, true) : ceilingIndex(key, true));
+    }
+
+    public OptionalLong higher(final long key) {
+        return get(descending ? floorIndex(key, false) : ceilingIndex(key, false));
+    }
+
+    // Elements in the order of this set
+    public long[] toLongArray() {
+        final long[] result = Arrays.copyOfRange(elements, from, to);
+        if (descending) {
+            for (int i = 0, j = result.length - 1; i < j; i++, j--) {
+                final long swap = result[i];
+                result[i] = result[j];
+                result[j] = swap;
+            }
+        }
+        return result;
+    }
+
+    private OptionalLong get(final int index) {
+        return from <= index && index < to
+                ? OptionalLong.of(elements[index])
+                : OptionalLong.empty();
+    }
+
+    private int ceilingIndex(final long key, final boolean inclusive) {
+        final int index = Arrays.binarySearch(elements, from, to, key);
+        if (index >= 0) {
+            return inclusive ? index : index + 1;
+        }
+        return -index - 1;
+    }
+
+    private int floorIndex(final long key, final boolean inclusive) {
+        final int index = Arrays.binarySearch(elements, from, to, key);
+        if (index >= 0) {
+            return inclusive ? index : index - 1;
+        }
+        return -index - 2;
+    }
+
+    @Override
+    public boolean contains(final Object o) {
+        return o instanceof final Long key && contains(key.longValue());
+    }
+
+    @Override
+    protected Long box(final int index) {
+        return elements[index];
+    }
+
+    @Override
+    protected LongArraySet view(final int from, final int to, final boolean descending) {
+        return new LongArraySet(elements, from, to, descending);
+    }
+
+    @Override
+    protected int ceilingIndex(final Long key, final boolean inclusive) {
+        return ceilingIndex(key.longValue(), inclusive);
+    }
+
+    @Override
+    protected int floorIndex(final Long key, final boolean inclusive) {
+        return floorIndex(key.longValue(), inclusive);
+    }
+
+    @Override
+    protected int compare(final Long a, final Long b) {
+        return Long.compare(a, b);
+    }
+}
\ No newline at end of file
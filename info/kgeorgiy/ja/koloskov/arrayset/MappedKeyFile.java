@@ -0,0 +1,120 @@
+package info.kgeorgiy.ja.koloskov.arrayset;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+// Sorted fixed-width keys after a header of magic, version, key width and padding that keeps keys
+// of width 8 aligned. Keys are ordered as unsigned bytes. The file is mapped in chunks of whole
+// keys, so opening it reads only the header and the keys stay in the page cache, not the heap
+final class MappedKeyFile {
+
+    static final int MAGIC = 0x4b455953;
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 4 * Integer.BYTES;
+
+    private static final long CHUNK_SIZE = 1L << 30;
+
+    private final ByteBuffer[] chunks;
+    private final int width;
+    private final int size;
+    private final int keysPerChunk;
+
+    private MappedKeyFile(
+            final ByteBuffer[] chunks,
+            final int width,
+            final int size,
+            final int keysPerChunk
+    ) {
+        this.chunks = chunks;
+        this.width = width;
+        this.size = size;
+        this.keysPerChunk = keysPerChunk;
+    }
+
+    // The mappings stay valid after the channel is closed and are released with the buffers
+    static MappedKeyFile open(final Path file) throws IOException {
+        try (final FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            final long length = channel.size();
+            if (length < HEADER_SIZE) {
+                throw new IOException("Not a mapped key set: " + file);
+            }
+            final ByteBuffer header = channel.map(MapMode.READ_ONLY, 0, HEADER_SIZE);
+            if (header.getInt() != MAGIC || header.getInt() != VERSION) {
+                throw new IOException("Not a mapped key set: " + file);
+            }
+            final int width = header.getInt();
+            if (width <= 0 || width > CHUNK_SIZE || (length - HEADER_SIZE) % width != 0) {
+                throw new IOException("Corrupted mapped key set: " + file);
+            }
+            final long count = (length - HEADER_SIZE) / width;
+            if (count > Integer.MAX_VALUE) {
+                throw new IOException("Too many keys in " + file + ": " + count);
+            }
+            final int keysPerChunk = (int) (CHUNK_SIZE / width);
+            final int chunkCount = (int) ((count + keysPerChunk - 1) / keysPerChunk);
+            final ByteBuffer[] chunks = new ByteBuffer[chunkCount];
+            for (int i = 0; i < chunks.length; i++) {
+                final long first = (long) i * keysPerChunk;
+                final long keys = Math.min(keysPerChunk, count - first);
+                final long position = HEADER_SIZE + first * width;
+                chunks[i] = channel.map(MapMode.READ_ONLY, position, keys * width);
+            }
+            return new MappedKeyFile(chunks, width, (int) count, keysPerChunk);
+        }
+    }
+
+    int width() {
+        return width;
+    }
+
+    int size() {
+        return size;
+    }
+
+    // The first eight bytes of the key as a big-endian long
+    long getLong(final int index) {
+        return chunks[index / keysPerChunk].getLong(offset(index));
+    }
+
+    // Read-only view of the key
+    ByteBuffer key(final int index) {
+        return chunks[index / keysPerChunk].slice(offset(index), width);
+    }
+
+    // Unsigned lexicographic comparison of the key with a probe, a proper prefix orders first
+    int compare(final int index, final ByteBuffer probe) {
+        final ByteBuffer chunk = chunks[index / keysPerChunk];
+        final int offset = offset(index);
+        final int length = Math.min(width, probe.remaining());
+        final int words = probe.order() == ByteOrder.BIG_ENDIAN ? length : 0;
+        int i = 0;
+        for (; i + Long.BYTES <= words; i += Long.BYTES) {
+            final int order = Long.compareUnsigned(
+                    chunk.getLong(offset + i),
+                    probe.getLong(probe.position() + i)
+            );
+            if (order != 0) {
+                return order;
+            }
+        }
+        for (; i < length; i++) {
+            final int order = Byte.compareUnsigned(
+                    chunk.get(offset + i),
+                    probe.get(probe.position() + i)
+            );
+            if (order != 0) {
+                return order;
+            }
+        }
+        return Integer.compare(width, probe.remaining());
+    }
+
+    private int offset(final int index) {
+        return (index % keysPerChunk) * width;
+    }
+}
\ No newline at end of file
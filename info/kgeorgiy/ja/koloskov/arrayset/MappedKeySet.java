@@ -0,0 +1,113 @@
+package info.kgeorgiy.ja.koloskov.arrayset;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.Comparator;
+
+// Sorted fixed-width byte keys in a memory-mapped file written by MappedSetWriter.forKeys.
+// Elements are read-only buffers over the mapping, ordered as unsigned bytes
+public class MappedKeySet extends PrimitiveArraySet<ByteBuffer, MappedKeySet> {
+
+    public static final Comparator<ByteBuffer> UNSIGNED_ORDER = MappedKeySet::compareUnsigned;
+
+    private final MappedKeyFile file;
+
+    private MappedKeySet(
+            final MappedKeyFile file,
+            final int from,
+            final int to,
+            final boolean descending
+    ) {
+        super(from, to, descending);
+        this.file = file;
+    }
+
+    public static MappedKeySet open(final Path file) throws IOException {
+        final MappedKeyFile keys = MappedKeyFile.open(file);
+        return new MappedKeySet(keys, 0, keys.size(), false);
+    }
+
+    public int keyWidth() {
+        return file.width();
+    }
+
+    public boolean contains(final byte[] key) {
+        return search(ByteBuffer.wrap(key)) >= 0;
+    }
+
+    private static int compareUnsigned(final ByteBuffer a, final ByteBuffer b) {
+        final int mismatch = a.mismatch(b);
+        if (mismatch < 0) {
+            return 0;
+        }
+        if (mismatch == a.remaining() || mismatch == b.remaining()) {
+            return Integer.compare(a.remaining(), b.remaining());
+        }
+        return Byte.compareUnsigned(
+                a.get(a.position() + mismatch),
+                b.get(b.position() + mismatch)
+        );
+    }
+
+    // Same contract as Arrays.binarySearch over the range of this view
+    private int search(final ByteBuffer key) {
+        int low = from;
+        int high = to - 1;
+        while (low <= high) {
+            final int middle = (low + high) >>> 1;
+            final int order = file.compare(middle, key);
+            if (order < 0) {
+                low = middle + 1;
+            } else if (order > 0) {
+                high = middle - 1;
+            } else {
+                return middle;
+            }
+        }
+        return -low - 1;
+    }
+
+    @Override
+    public boolean contains(final Object o) {
+        return o instanceof final ByteBuffer key && search(key) >= 0;
+    }
+
+    @Override
+    protected ByteBuffer box(final int index) {
+        return file.key(index);
+    }
+
+    @Override
+    protected MappedKeySet view(final int from, final int to, final boolean descending) {
+        return new MappedKeySet(file, from, to, descending);
+    }
+
+    @Override
+    protected int ceilingIndex(final ByteBuffer key, final boolean inclusive) {
+        final int index = search(key);
+        if (index >= 0) {
+            return inclusive ? index : index + 1;
+        }
+        return -index - 1;
+    }
+
+    @Override
+    protected int floorIndex(final ByteBuffer key, final boolean inclusive) {
+        final int index = search(key);
+        if (index >= 0) {
+            return inclusive ? index : index - 1;
+        }
+        return -index - 2;
+    }
+
+    @Override
+    protected int compare(final ByteBuffer a, final ByteBuffer b) {
+        return compareUnsigned(a, b);
+    }
+
+    @Override
+    public Comparator<? super ByteBuffer> comparator() {
+        return descending ? UNSIGNED_ORDER.reversed() : UNSIGNED_ORDER;
+    }
+}
\ No newline at end of file
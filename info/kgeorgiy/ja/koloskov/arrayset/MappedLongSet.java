@@ -0,0 +1,122 @@
+package info.kgeorgiy.ja.koloskov.arrayset;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.OptionalLong;
+
+// Sorted longs in a memory-mapped file written by MappedSetWriter.forLongs. Opening maps the
+// file without reading it and every view shares the mapping, so the heap holds only the views
+public class MappedLongSet extends PrimitiveArraySet<Long, MappedLongSet> {
+
+    private final MappedKeyFile file;
+
+    private MappedLongSet(
+            final MappedKeyFile file,
+            final int from,
+            final int to,
+            final boolean descending
+    ) {
+        super(from, to, descending);
+        this.file = file;
+    }
+
+    public static MappedLongSet open(final Path file) throws IOException {
+        final MappedKeyFile keys = MappedKeyFile.open(file);
+        if (keys.width() != Long.BYTES) {
+            throw new IOException("Keys of " + file + " are " + keys.width() + " bytes, not longs");
+        }
+        return new MappedLongSet(keys, 0, keys.size(), false);
+    }
+
+    public boolean contains(final long key) {
+        return search(key) >= 0;
+    }
+
+    public OptionalLong lower(final long key) {
+        return get(descending ? ceilingIndex(key, false) : floorIndex(key, false));
+    }
+
+    public OptionalLong floor(final long key) {
+        return get(descending ? ceilingIndex(key, true) : floorIndex(key, true));
+    }
+
+    public OptionalLong ceiling(final long key) {
+        return get(descending ? floorIndex(key, true) : ceilingIndex(key, true));
+    }
+
+    public OptionalLong higher(final long key) {
+        return get(descending ? floorIndex(key, false) : ceilingIndex(key, false));
+    }
+
+    private long key(final int index) {
+        return file.getLong(index) ^ Long.MIN_VALUE;
+    }
+
+    private OptionalLong get(final int index) {
+        return from <= index && index < to ? OptionalLong.of(key(index)) : OptionalLong.empty();
+    }
+
+    // Same contract as Arrays.binarySearch over the range of this view
+    private int search(final long key) {
+        int low = from;
+        int high = to - 1;
+        while (low <= high) {
+            final int middle = (low + high) >>> 1;
+            final long value = key(middle);
+            if (value < key) {
+                low = middle + 1;
+            } else if (value > key) {
+                high = middle - 1;
+            } else {
+                return middle;
+            }
+        }
+        return -low - 1;
+    }
+
+    private int ceilingIndex(final long key, final boolean inclusive) {
+        final int index = search(key);
+        if (index >= 0) {
+            return inclusive ? index : index + 1;
+        }
+        return -index - 1;
+    }
+
+    private int floorIndex(final long key, final boolean inclusive) {
+        final int index = search(key);
+        if (index >= 0) {
+            return inclusive ? index : index - 1;
+        }
+        return -index - 2;
+    }
+
+    @Override
+    public boolean contains(final Object o) {
+        return o instanceof final Long key && contains(key.longValue());
+    }
+
+    @Override
+    protected Long box(final int index) {
+        return key(index);
+    }
+
+    @Override
+    protected MappedLongSet view(final int from, final int to, final boolean descending) {
+        return new MappedLongSet(file, from, to, descending);
+    }
+
+    @Override
+    protected int ceilingIndex(final Long key, final boolean inclusive) {
+        return ceilingIndex(key.longValue(), inclusive);
+    }
+
+    @Override
+    protected int floorIndex(final Long key, final boolean inclusive) {
+        return floorIndex(key.longValue(), inclusive);
+    }
+
+    @Override
+    protected int compare(final Long a, final Long b) {
+        return Long.compare(a, b);
+    }
+}
\ No newline at end of file
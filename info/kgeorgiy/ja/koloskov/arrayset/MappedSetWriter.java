@@ -0,0 +1,93 @@
+package info.kgeorgiy.ja.koloskov.arrayset;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+// Writes the file read by MappedLongSet and MappedKeySet from keys given in ascending order.
+// Repeated keys are written once, keys out of order are rejected. Longs are stored big-endian
+// with the sign bit flipped, so their unsigned byte order is their numeric order
+public class MappedSetWriter implements Closeable {
+
+    private static final int BUFFER_SIZE = 1 << 20;
+
+    private final FileChannel channel;
+    private final int width;
+    private final ByteBuffer buffer;
+    private final byte[] last;
+    private final ByteBuffer scratch = ByteBuffer.allocate(Long.BYTES);
+    private boolean empty = true;
+
+    private MappedSetWriter(final Path file, final int width) throws IOException {
+        if (width <= 0) {
+            throw new IllegalArgumentException("Key width must be positive: " + width);
+        }
+        this.channel = FileChannel.open(
+                file,
+                StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.WRITE
+        );
+        this.width = width;
+        this.buffer = ByteBuffer.allocateDirect(
+                Math.max(BUFFER_SIZE, MappedKeyFile.HEADER_SIZE + width)
+        );
+        this.last = new byte[width];
+        buffer.putInt(MappedKeyFile.MAGIC).putInt(MappedKeyFile.VERSION).putInt(width).putInt(0);
+    }
+
+    public static MappedSetWriter forLongs(final Path file) throws IOException {
+        return new MappedSetWriter(file, Long.BYTES);
+    }
+
+    public static MappedSetWriter forKeys(final Path file, final int width) throws IOException {
+        return new MappedSetWriter(file, width);
+    }
+
+    public void add(final long key) throws IOException {
+        scratch.putLong(0, key ^ Long.MIN_VALUE);
+        add(scratch.array());
+    }
+
+    public void add(final byte[] key) throws IOException {
+        if (key.length != width) {
+            throw new IllegalArgumentException(
+                    "Key of " + key.length + " bytes in a set of " + width + "-byte keys"
+            );
+        }
+        final int order = Arrays.compareUnsigned(last, key);
+        if (!empty && order >= 0) {
+            if (order == 0) {
+                return;
+            }
+            throw new IllegalArgumentException("Keys must be added in ascending order");
+        }
+        empty = false;
+        System.arraycopy(key, 0, last, 0, width);
+        if (buffer.remaining() < width) {
+            drain();
+        }
+        buffer.put(key);
+    }
+
+    private void drain() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            drain();
+        } finally {
+            channel.close();
+        }
+    }
+}
\ No newline at end of file
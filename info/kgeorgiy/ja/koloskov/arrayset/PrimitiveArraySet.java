@@ -0,0 +1,200 @@
+package info.kgeorgiy.ja.koloskov.arrayset;
+
+import java.util.AbstractSet;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.NavigableSet;
+import java.util.NoSuchElementException;
+
+// Immutable view of the range [from, to) of a sorted primitive array, possibly in descending
+// order. Subclasses provide searching and boxing, navigation and views are shared here
+abstract class PrimitiveArraySet<T, S extends PrimitiveArraySet<T, S>>
+        extends AbstractSet<T> implements NavigableSet<T> {
+
+    protected final int from;
+    protected final int to;
+    protected final boolean descending;
+
+    protected PrimitiveArraySet(final int from, final int to, final boolean descending) {
+        this.from = from;
+        this.to = to;
+        this.descending = descending;
+    }
+
+    protected abstract T box(int index);
+
+    protected abstract S view(int from, int to, boolean descending);
+
+    // Array index of the least element above the key, or of the key itself if inclusive
+    protected abstract int ceilingIndex(T key, boolean inclusive);
+
+    // Array index of the greatest element below the key, or of the key itself if inclusive
+    protected abstract int floorIndex(T key, boolean inclusive);
+
+    protected abstract int compare(T a, T b);
+
+    protected final int index(final int position) {
+        return descending ? to - 1 - position : from + position;
+    }
+
+    protected final T boxOrNull(final int index) {
+        return from <= index && index < to ? box(index) : null;
+    }
+
+    @Override
+    public T lower(final T t) {
+        return boxOrNull(descending ? ceilingIndex(t, false) : floorIndex(t, false));
+    }
+
+    @Override
+    public T floor(final T t) {
+        return boxOrNull(descending ? ceilingIndex(t, true) : floorIndex(t, true));
+    }
+
+    @Override
+    public T ceiling(final T t) {
+        return boxOrNull(descending ? floorIndex(t, true) : ceilingIndex(t, true));
+    }
+
+    @Override
+    public T higher(final T t) {
+        return boxOrNull(descending ? floorIndex(t, false) : ceilingIndex(t, false));
+    }
+
+    @Override
+    public T pollFirst() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public T pollLast() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public boolean add(final T t) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public boolean remove(final Object o) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void clear() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public int size() {
+        return to - from;
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+        return new Iterator<>() {
+            private int position;
+
+            @Override
+            public boolean hasNext() {
+                return position < size();
+            }
+
+            @Override
+            public T next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return box(index(position++));
+            }
+        };
+    }
+
+    @Override
+    public S descendingSet() {
+        return view(from, to, !descending);
+    }
+
+    @Override
+    public Iterator<T> descendingIterator() {
+        return descendingSet().iterator();
+    }
+
+    @Override
+    public S subSet(
+            final T fromElement,
+            final boolean fromInclusive,
+            final T toElement,
+            final boolean toInclusive
+    ) {
+        final int order = compare(fromElement, toElement);
+        if (descending ? order < 0 : order > 0) {
+            throw new IllegalArgumentException("fromKey > toKey");
+        }
+        if (descending) {
+            return range(
+                    ceilingIndex(toElement, toInclusive),
+                    floorIndex(fromElement, fromInclusive)
+            );
+        }
+        return range(ceilingIndex(fromElement, fromInclusive), floorIndex(toElement, toInclusive));
+    }
+
+    @Override
+    public S headSet(final T toElement, final boolean inclusive) {
+        return descending
+                ? range(ceilingIndex(toElement, inclusive), to - 1)
+                : range(from, floorIndex(toElement, inclusive));
+    }
+
+    @Override
+    public S tailSet(final T fromElement, final boolean inclusive) {
+        return descending
+                ? range(from, floorIndex(fromElement, inclusive))
+                : range(ceilingIndex(fromElement, inclusive), to - 1);
+    }
+
+    // Both bounds are array indexes and inclusive
+    private S range(final int low, final int high) {
+        final int start = Math.max(low, from);
+        return view(start, Math.max(start, Math.min(high + 1, to)), descending);
+    }
+
+    @Override
+    public S subSet(final T fromElement, final T toElement) {
+        return subSet(fromElement, true, toElement, false);
+    }
+
+    @Override
+    public S headSet(final T toElement) {
+        return headSet(toElement, false);
+    }
+
+    @Override
+    public S tailSet(final T fromElement) {
+        return tailSet(fromElement, true);
+    }
+
+    @Override
+    public Comparator<? super T> comparator() {
+        return descending ? Collections.reverseOrder() : null;
+    }
+
+    @Override
+    public T first() {
+        if (isEmpty()) {
+            throw new NoSuchElementException();
+        }
+        return box(index(0));
+    }
+
+    @Override
+    public T last() {
+        if (isEmpty()) {
+            throw new NoSuchElementException();
+        }
+        return box(index(size() - 1));
+    }
+}
\ No newline at end of file
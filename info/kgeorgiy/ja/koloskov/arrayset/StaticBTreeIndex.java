@@ -0,0 +1,113 @@
+package info.kgeorgiy.ja.koloskov.arrayset;
+
+import java.util.Comparator;
+import java.util.List;
+
+// Copy of a sorted list laid out as an implicit static B-tree: node k holds NODE_SIZE keys in
+// slots [k * NODE_SIZE, (k + 1) * NODE_SIZE) and its children are k * (NODE_SIZE + 1) + i + 1.
+// A lookup visits about log9(n) nodes and compares all keys of a node independently, so the
+// loads of one node overlap instead of forming a chain of cache misses as in binary search.
+// Views reuse the arrays and map results to their own range
+final class StaticBTreeIndex<T> {
+
+    private static final int NODE_SIZE = 8;
+
+    // Slots past the last element stay null and order after every key
+    private final Object[] keys;
+    private final int[] ranks;
+    private final int nodes;
+    private final int size;
+    private final Comparator<? super T> comparator;
+    private final int low;
+    private final int high;
+    private final boolean reversed;
+
+    StaticBTreeIndex(final List<T> sorted, final Comparator<? super T> comparator) {
+        this.size = sorted.size();
+        this.nodes = (size + NODE_SIZE - 1) / NODE_SIZE;
+        this.keys = new Object[nodes * NODE_SIZE];
+        this.ranks = new int[nodes * NODE_SIZE];
+        this.comparator = comparator;
+        this.low = 0;
+        this.high = size;
+        this.reversed = false;
+        fill(sorted.toArray(), 0, 0);
+    }
+
+    private StaticBTreeIndex(
+            final StaticBTreeIndex<T> index,
+            final int low,
+            final int high,
+            final boolean reversed
+    ) {
+        this.keys = index.keys;
+        this.ranks = index.ranks;
+        this.nodes = index.nodes;
+        this.size = index.size;
+        this.comparator = index.comparator;
+        this.low = low;
+        this.high = high;
+        this.reversed = reversed;
+    }
+
+    // In-order walk of the implicit tree assigns the sorted elements to slots
+    private int fill(final Object[] sorted, final int next, final int node) {
+        if (node >= nodes) {
+            return next;
+        }
+        int rank = next;
+        for (int i = 0; i <= NODE_SIZE; i++) {
+            rank = fill(sorted, rank, node * (NODE_SIZE + 1) + i + 1);
+            if (i < NODE_SIZE && rank < size) {
+                keys[node * NODE_SIZE + i] = sorted[rank];
+                ranks[node * NODE_SIZE + i] = rank++;
+            }
+        }
+        return rank;
+    }
+
+    StaticBTreeIndex<T> subRange(final int from, final int to) {
+        return reversed
+                ? new StaticBTreeIndex<>(this, high - to, high - from, true)
+                : new StaticBTreeIndex<>(this, low + from, low + to, false);
+    }
+
+    StaticBTreeIndex<T> descending() {
+        return new StaticBTreeIndex<>(this, low, high, !reversed);
+    }
+
+    // Same contract as Collections.binarySearch over the elements of the view
+    int search(final T key) {
+        final int found = searchAll(key);
+        final int point = found >= 0 ? found : -found - 1;
+        if (found >= 0 && low <= found && found < high) {
+            return reversed ? high - 1 - found : found - low;
+        }
+        final int clamped = Math.min(Math.max(point, low), high);
+        return -(reversed ? high - clamped : clamped - low) - 1;
+    }
+
+    @SuppressWarnings("unchecked")
+    private int searchAll(final T key) {
+        int bound = -1;
+        for (int node = 0; node < nodes; ) {
+            final int start = node * NODE_SIZE;
+            int less = 0;
+            for (int i = start; i < start + NODE_SIZE; i++) {
+                final Object slot = keys[i];
+                if (slot != null && comparator.compare((T) slot, key) < 0) {
+                    less++;
+                }
+            }
+            // The first key of the node not below the key is the best lower bound so far
+            if (less < NODE_SIZE && keys[start + less] != null) {
+                bound = start + less;
+            }
+            node = node * (NODE_SIZE + 1) + less + 1;
+        }
+        if (bound < 0) {
+            return -size - 1;
+        }
+        return comparator.compare((T) keys[bound], key) == 0 ? ranks[bound] : -ranks[bound] - 1;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,216 @@
+package info.kgeorgiy.ja.koloskov.walk;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+// Cursor over a manifest written by BinaryRecordWriter. The file is memory-mapped in windows and
+// records are decoded in place, so scanning digests allocates nothing per record
+public class BinaryManifestReader implements Closeable {
+
+    private static final long WINDOW_SIZE = 1L << 30;
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    private final FileChannel channel;
+    private final long size;
+    private final boolean deflated;
+    private final String[] prefixes;
+    private final int[] offsets;
+    private final int digestLength;
+    private final Inflater inflater;
+    private ByteBuffer window;
+    private long windowStart;
+    private ByteBuffer block = ByteBuffer.allocate(0);
+    private byte[] inflated = new byte[BinaryRecordWriter.BLOCK_SIZE];
+    private byte[] pathBytes = new byte[256];
+    private int digestStart;
+    private int pathLength;
+
+    private BinaryManifestReader(final FileChannel channel, final Path file) throws IOException {
+        this.channel = channel;
+        this.size = channel.size();
+        map(0);
+        if (!ensure(2 * Short.BYTES + Integer.BYTES) || window.getInt() != BinaryRecordWriter.MAGIC
+                || window.get() != BinaryRecordWriter.VERSION) {
+            throw new IOException("Not a binary walk manifest: " + file);
+        }
+        this.deflated = (window.get() & BinaryRecordWriter.FLAG_DEFLATE) != 0;
+        final int count = Short.toUnsignedInt(window.getShort());
+        this.prefixes = new String[count];
+        this.offsets = new int[count + 1];
+        for (int i = 0; i < count; i++) {
+            checkAvailable(2 * Short.BYTES);
+            final int length = Short.toUnsignedInt(window.getShort());
+            final int prefixLength = Short.toUnsignedInt(window.getShort());
+            checkAvailable(prefixLength);
+            final byte[] prefix = new byte[prefixLength];
+            window.get(prefix);
+            prefixes[i] = new String(prefix, StandardCharsets.UTF_8);
+            offsets[i + 1] = offsets[i] + length;
+        }
+        this.digestLength = offsets[count];
+        this.inflater = deflated ? new Inflater() : null;
+    }
+
+    public static BinaryManifestReader open(final Path file) throws IOException {
+        final FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            return new BinaryManifestReader(channel, file);
+        } catch (final IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    public int digestCount() {
+        return prefixes.length;
+    }
+
+    public boolean next() throws IOException {
+        if (deflated) {
+            if (!block.hasRemaining() && !nextBlock()) {
+                return false;
+            }
+        } else {
+            final long position = windowStart + window.position();
+            if (position == size) {
+                return false;
+            }
+            ensure((int) Math.min(5, size - position));
+        }
+        final int length = getVarint();
+        if (!deflated) {
+            checkAvailable(digestLength + length);
+        }
+        final ByteBuffer records = records();
+        if (records.remaining() < digestLength + length) {
+            throw new IOException("Truncated record in binary manifest");
+        }
+        digestStart = records.position();
+        pathLength = length;
+        records.position(digestStart + digestLength + length);
+        return true;
+    }
+
+    private ByteBuffer records() {
+        return deflated ? block : window;
+    }
+
+    // Read-only view of one digest of the current record, valid until the next call to next
+    public ByteBuffer digest(final int index) {
+        return records().slice(digestStart + offsets[index], offsets[index + 1] - offsets[index])
+                .asReadOnlyBuffer();
+    }
+
+    public String path() {
+        if (pathBytes.length < pathLength) {
+            pathBytes = new byte[Math.max(pathLength, pathBytes.length * 2)];
+        }
+        records().get(digestStart + digestLength, pathBytes, 0, pathLength);
+        return new String(pathBytes, 0, pathLength, StandardCharsets.UTF_8);
+    }
+
+    // Formats the digests the way the text output does
+    public String hash() {
+        final StringBuilder hash = new StringBuilder();
+        for (int i = 0; i < prefixes.length; i++) {
+            if (i > 0) {
+                hash.append(' ');
+            }
+            hash.append(prefixes[i]);
+            for (int j = digestStart + offsets[i]; j < digestStart + offsets[i + 1]; j++) {
+                final int value = records().get(j);
+                hash.append(HEX_DIGITS[(value >> 4) & 0xF]).append(HEX_DIGITS[value & 0xF]);
+            }
+        }
+        return hash.toString();
+    }
+
+    private boolean nextBlock() throws IOException {
+        if (windowStart + window.position() == size) {
+            return false;
+        }
+        checkAvailable(2 * Integer.BYTES);
+        final int rawLength = window.getInt();
+        final int compressedLength = window.getInt();
+        checkAvailable(compressedLength);
+        if (inflated.length < rawLength) {
+            inflated = new byte[rawLength];
+        }
+        inflater.reset();
+        inflater.setInput(window.slice(window.position(), compressedLength));
+        window.position(window.position() + compressedLength);
+        try {
+            int length = 0;
+            while (length < rawLength && !inflater.finished()) {
+                final int count = inflater.inflate(inflated, length, rawLength - length);
+                if (count == 0 && inflater.needsInput()) {
+                    break;
+                }
+                length += count;
+            }
+            if (length != rawLength) {
+                throw new IOException("Truncated block in binary manifest");
+            }
+        } catch (final DataFormatException e) {
+            throw new IOException("Corrupted block in binary manifest: " + e.getMessage(), e);
+        }
+        block = ByteBuffer.wrap(inflated, 0, rawLength);
+        return true;
+    }
+
+    private int getVarint() throws IOException {
+        final ByteBuffer records = records();
+        int value = 0;
+        for (int shift = 0; shift < Integer.SIZE; shift += 7) {
+            if (!records.hasRemaining()) {
+                break;
+            }
+            final byte b = records.get();
+            value |= (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed record length in binary manifest");
+    }
+
+    private void checkAvailable(final int bytes) throws IOException {
+        if (!ensure(bytes)) {
+            throw new IOException("Truncated binary manifest");
+        }
+    }
+
+    // Remaps the window at the current position when fewer than bytes are left in it
+    private boolean ensure(final int bytes) throws IOException {
+        if (window.remaining() >= bytes) {
+            return true;
+        }
+        final long position = windowStart + window.position();
+        if (size - position < bytes) {
+            return false;
+        }
+        map(position);
+        return true;
+    }
+
+    private void map(final long position) throws IOException {
+        windowStart = position;
+        window = channel.map(MapMode.READ_ONLY, position, Math.min(WINDOW_SIZE, size - position));
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (inflater != null) {
+            inflater.end();
+        }
+        channel.close();
+    }
+}
\ No newline at end of file
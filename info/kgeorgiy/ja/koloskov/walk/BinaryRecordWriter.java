@@ -0,0 +1,200 @@
+package info.kgeorgiy.ja.koloskov.walk;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.Deflater;
+
+// Header: magic, version, flags, digest count, then per digest its byte length and text prefix.
+// Record: varint path length, raw digest bytes, UTF-8 path. With FLAG_DEFLATE records are grouped
+// into blocks stored as raw length, compressed length and deflated bytes
+public class BinaryRecordWriter implements RecordWriter {
+
+    static final int MAGIC = 0x574c4b42;
+    static final byte VERSION = 1;
+    static final byte FLAG_DEFLATE = 1;
+    static final int BLOCK_SIZE = 1 << 16;
+
+    private static final Logger logger = Logger.getLogger(BinaryRecordWriter.class.getName());
+    private static final int BUFFER_SIZE = 1 << 20;
+
+    private final FileChannel channel;
+    private final Deflater deflater;
+    private final ByteBuffer output = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    private ByteBuffer block;
+    private byte[] compressed;
+    private boolean headerWritten;
+    private String[] prefixes;
+    private int[] lengths;
+    private int hashTextLength;
+    private int digestLength;
+    private byte[] digest;
+
+    // Appending to a non-empty channel continues the manifest after its existing header
+    public BinaryRecordWriter(final FileChannel channel, final boolean deflate) throws IOException {
+        this.channel = channel;
+        this.deflater = deflate ? new Deflater(Deflater.BEST_SPEED) : null;
+        this.block = deflate ? ByteBuffer.allocate(BLOCK_SIZE) : output;
+        this.compressed = deflate ? new byte[BLOCK_SIZE] : null;
+        this.headerWritten = channel.size() > 0;
+    }
+
+    // A record that cannot be written fails the write, so a resumed walk never counts it as done.
+    // The hash is parsed before anything is buffered, so no partial record is left behind
+    @Override
+    public void write(final String fileName, final String hash) {
+        try {
+            if (lengths == null) {
+                layout(hash);
+            }
+            if (hash.length() != hashTextLength) {
+                throw new IOException("Hash does not match the output layout: " + hash);
+            }
+            parseDigests(hash);
+            final byte[] path = fileName.getBytes(StandardCharsets.UTF_8);
+            reserve(5 + digestLength + path.length);
+            putVarint(block, path.length);
+            block.put(digest);
+            block.put(path);
+        } catch (final IOException e) {
+            logger.log(Level.WARNING, "Error while writing output: {0}", e.getMessage());
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // Every record of a walk shares the layout of its first hash, e.g. "tree:4096:<hex>"
+    private void layout(final String hash) throws IOException {
+        final String[] digests = hash.split(" ");
+        prefixes = new String[digests.length];
+        lengths = new int[digests.length];
+        for (int i = 0; i < digests.length; i++) {
+            final int start = digests[i].lastIndexOf(':') + 1;
+            prefixes[i] = digests[i].substring(0, start);
+            lengths[i] = (digests[i].length() - start) / 2;
+            digestLength += lengths[i];
+        }
+        hashTextLength = hash.length();
+        digest = new byte[digestLength];
+        writeHeader();
+    }
+
+    private void writeHeader() throws IOException {
+        if (headerWritten) {
+            return;
+        }
+        headerWritten = true;
+        output.putInt(MAGIC).put(VERSION).put(deflater == null ? 0 : FLAG_DEFLATE);
+        final int count = lengths == null ? 0 : lengths.length;
+        output.putShort((short) count);
+        for (int i = 0; i < count; i++) {
+            final byte[] prefix = prefixes[i].getBytes(StandardCharsets.UTF_8);
+            output.putShort((short) lengths[i]).putShort((short) prefix.length).put(prefix);
+        }
+    }
+
+    private void parseDigests(final String hash) throws IOException {
+        int position = 0;
+        int offset = 0;
+        for (int i = 0; i < lengths.length; i++) {
+            position += prefixes[i].length();
+            for (int j = 0; j < lengths[i]; j++, position += 2) {
+                final int high = Character.digit(hash.charAt(position), 16);
+                final int low = Character.digit(hash.charAt(position + 1), 16);
+                if ((high | low) < 0) {
+                    throw new IOException("Hash is not hexadecimal: " + hash);
+                }
+                digest[offset++] = (byte) (high << 4 | low);
+            }
+            position++;
+        }
+    }
+
+    private static void putVarint(final ByteBuffer buffer, final int value) {
+        int rest = value;
+        while ((rest & ~0x7F) != 0) {
+            buffer.put((byte) (rest & 0x7F | 0x80));
+            rest >>>= 7;
+        }
+        buffer.put((byte) rest);
+    }
+
+    private void reserve(final int bytes) throws IOException {
+        if (block.remaining() >= bytes) {
+            return;
+        }
+        if (deflater == null) {
+            drain();
+            if (output.remaining() < bytes) {
+                throw new IOException("Record of " + bytes + " bytes does not fit the buffer");
+            }
+        } else {
+            finishBlock();
+            if (block.capacity() < bytes) {
+                block = ByteBuffer.allocate(bytes);
+            }
+        }
+    }
+
+    private void finishBlock() throws IOException {
+        if (deflater == null || block.position() == 0) {
+            return;
+        }
+        deflater.reset();
+        deflater.setInput(block.array(), 0, block.position());
+        deflater.finish();
+        int length = 0;
+        while (!deflater.finished()) {
+            if (length == compressed.length) {
+                compressed = Arrays.copyOf(compressed, compressed.length * 2);
+            }
+            length += deflater.deflate(compressed, length, compressed.length - length);
+        }
+        if (output.remaining() < 2 * Integer.BYTES + length) {
+            drain();
+        }
+        output.putInt(block.position()).putInt(length);
+        if (output.remaining() >= length) {
+            output.put(compressed, 0, length);
+        } else {
+            drain();
+            final ByteBuffer large = ByteBuffer.wrap(compressed, 0, length);
+            while (large.hasRemaining()) {
+                channel.write(large);
+            }
+        }
+        block.clear();
+    }
+
+    private void drain() throws IOException {
+        output.flip();
+        while (output.hasRemaining()) {
+            channel.write(output);
+        }
+        output.clear();
+    }
+
+    @Override
+    public void flush() throws IOException {
+        finishBlock();
+        drain();
+    }
+
+    // A walk without records still leaves a valid, empty manifest
+    @Override
+    public void close() throws IOException {
+        try {
+            writeHeader();
+            flush();
+        } finally {
+            if (deflater != null) {
+                deflater.end();
+            }
+            channel.close();
+        }
+    }
+}
\ No newline at end of file
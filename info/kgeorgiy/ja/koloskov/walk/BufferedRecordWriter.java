@@ -0,0 +1,38 @@
+package info.kgeorgiy.ja.koloskov.walk;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+public class BufferedRecordWriter implements RecordWriter {
+
+    private static final Logger logger = Logger.getLogger(BufferedRecordWriter.class.getName());
+    private final BufferedWriter writer;
+
+    public BufferedRecordWriter(final BufferedWriter writer) {
+        this.writer = writer;
+    }
+
+    @Override
+    public void write(final String fileName, final String hash) {
+        try {
+            writer.write(hash);
+            writer.write(' ');
+            writer.write(fileName);
+            writer.newLine();
+        } catch (final IOException e) {
+            logger.log(Level.WARNING, "Error while writing output: {0}", e.getMessage());
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        writer.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        writer.close();
+    }
+}
\ No newline at end of file
@@ -0,0 +1,43 @@
+package info.kgeorgiy.ja.koloskov.walk;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+
+public class CachingFileHasher implements FileHasher {
+
+    private final HashCache cache;
+    private final FileHasher delegate;
+
+    public CachingFileHasher(final HashCache cache, final FileHasher delegate) {
+        this.cache = cache;
+        this.delegate = delegate;
+    }
+
+    @Override
+    public String getHash(final Path file) throws IOException {
+        return getHash(file, Files.readAttributes(file, BasicFileAttributes.class));
+    }
+
+    @Override
+    public String getHash(final Path file, final BasicFileAttributes attrs) throws IOException {
+        final String cached = cache.get(file, attrs);
+        if (cached != null) {
+            return cached;
+        }
+        final String hash = delegate.getHash(file, attrs);
+        cache.put(file, attrs, hash);
+        return hash;
+    }
+
+    @Override
+    public int getHashLength() {
+        return delegate.getHashLength();
+    }
+
+    @Override
+    public String getNullHash() {
+        return delegate.getNullHash();
+    }
+}
\ No newline at end of file
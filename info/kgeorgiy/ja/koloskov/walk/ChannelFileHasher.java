@@ -0,0 +1,181 @@
+package info.kgeorgiy.ja.koloskov.walk;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.HexFormat;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+public abstract class ChannelFileHasher implements FileHasher {
+
+    private static final Logger logger = Logger.getLogger(ChannelFileHasher.class.getName());
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+    private final int hashLength;
+    private final ReadStrategy strategy;
+    private ByteBuffer buffer;
+    private final char[] hex;
+    private WalkMetrics metrics;
+
+    protected ChannelFileHasher(final int hashLength, final ReadStrategy strategy) {
+        this.hashLength = hashLength;
+        this.strategy = strategy;
+        this.hex = new char[hashLength * 2];
+    }
+
+    public ChannelFileHasher metrics(final WalkMetrics metrics) {
+        this.metrics = metrics;
+        return this;
+    }
+
+    protected abstract void reset();
+
+    protected abstract void update(ByteBuffer data);
+
+    // The returned array is only read before the next call, so implementations may reuse it
+    protected abstract byte[] digest();
+
+    @Override
+    public String getHash(final Path filePath) throws IOException {
+        reset();
+        try (final FileChannel channel = FileChannel.open(filePath, StandardOpenOption.READ)) {
+            final long size = channel.size();
+            if (strategy.shouldMap(size)) {
+                readMapped(channel, size);
+            } else {
+                readBuffered(channel);
+            }
+        } catch (final IOException e) {
+            logger.log(Level.WARNING, "Error reading file: " + filePath + ": " + e.getMessage());
+            throw e;
+        }
+        return formatHash();
+    }
+
+    // The walk already knows the size, so a file shorter than the buffer is read whole into it
+    // with a read sized from the attributes and without the size lookup
+    @Override
+    public String getHash(final Path filePath, final BasicFileAttributes attrs) throws IOException {
+        final long size = attrs.size();
+        if (!attrs.isRegularFile() || size >= strategy.bufferSize() || strategy.shouldMap(size)) {
+            return getHash(filePath);
+        }
+        reset();
+        try (final FileChannel channel = FileChannel.open(filePath, StandardOpenOption.READ)) {
+            readSmall(channel, size);
+        } catch (final IOException e) {
+            logger.log(Level.WARNING, "Error reading file: " + filePath + ": " + e.getMessage());
+            throw e;
+        }
+        return formatHash();
+    }
+
+    protected String formatHash() {
+        final byte[] digest = digest();
+        for (int i = 0; i < hashLength; i++) {
+            // Lengths beyond the digest are zero-padded
+            final int value = i < digest.length ? digest[i] : 0;
+            hex[2 * i] = HEX_DIGITS[(value >> 4) & 0xF];
+            hex[2 * i + 1] = HEX_DIGITS[value & 0xF];
+        }
+        return new String(hex);
+    }
+
+    // Allocated on first read, so hashers that only digest for a composite never hold one
+    private ByteBuffer buffer() {
+        if (buffer == null) {
+            buffer = strategy.allocate();
+        }
+        return buffer;
+    }
+
+    private void readBuffered(final FileChannel channel) throws IOException {
+        if (metrics != null) {
+            readBufferedTimed(channel);
+            return;
+        }
+        final ByteBuffer buffer = buffer();
+        buffer.clear();
+        while (channel.read(buffer) != -1) {
+            buffer.flip();
+            update(buffer);
+            buffer.clear();
+        }
+    }
+
+    // Reads may be short on network filesystems, so they go on until the file ends. The read
+    // asks for one byte more than the known size, so getting it means the file has grown and
+    // the rest is read as usual
+    private void readSmall(final FileChannel channel, final long size) throws IOException {
+        final ByteBuffer buffer = buffer();
+        buffer.clear().limit((int) size + 1);
+        final long start = System.nanoTime();
+        boolean grown = true;
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) < 0) {
+                grown = false;
+                break;
+            }
+        }
+        final long read = System.nanoTime();
+        buffer.flip();
+        if (metrics != null) {
+            metrics.bytesRead(buffer.remaining());
+        }
+        update(buffer);
+        if (metrics != null) {
+            metrics.read(read - start);
+            metrics.digested(System.nanoTime() - read);
+        }
+        if (grown) {
+            readBuffered(channel);
+        }
+    }
+
+    private void readBufferedTimed(final FileChannel channel) throws IOException {
+        final ByteBuffer buffer = buffer();
+        buffer.clear();
+        long start = System.nanoTime();
+        while (channel.read(buffer) != -1) {
+            final long read = System.nanoTime();
+            metrics.read(read - start);
+            buffer.flip();
+            metrics.bytesRead(buffer.remaining());
+            update(buffer);
+            buffer.clear();
+            start = System.nanoTime();
+            metrics.digested(start - read);
+        }
+        metrics.read(System.nanoTime() - start);
+    }
+
+    // Page faults of a mapped window are paid inside update, so they count as digesting
+    private void readMapped(final FileChannel channel, final long size) throws IOException {
+        for (long position = 0; position < size; position += strategy.mapWindow()) {
+            final long length = Math.min(strategy.mapWindow(), size - position);
+            final long start = System.nanoTime();
+            update(channel.map(MapMode.READ_ONLY, position, length));
+            if (metrics != null) {
+                metrics.bytesRead(length);
+                metrics.digested(System.nanoTime() - start);
+            }
+        }
+        // The file may have grown since size() was taken
+        channel.position(size);
+        readBuffered(channel);
+    }
+
+    @Override
+    public int getHashLength() {
+        return hashLength;
+    }
+
+    @Override
+    public String getNullHash() {
+        return HexFormat.of().formatHex(new byte[getHashLength()]);
+    }
+}
\ No newline at end of file
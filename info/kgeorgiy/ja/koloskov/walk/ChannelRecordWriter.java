@@ -0,0 +1,209 @@
+package info.kgeorgiy.ja.koloskov.walk;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+public class ChannelRecordWriter implements RecordWriter {
+
+    private static final Logger logger = Logger.getLogger(ChannelRecordWriter.class.getName());
+    private static final int QUEUE_CAPACITY = 1 << 14;
+    private static final int BATCH_SIZE = 1 << 12;
+    private static final int BUFFER_SIZE = 1 << 20;
+    private static final int RECORD_SIZE = 1 << 10;
+    private static final long LIVENESS_CHECK_MILLIS = 100;
+    private static final Entry END = new Entry(null, null, null);
+
+    private final FileChannel channel;
+    private final BlockingQueue<Entry> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+    private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder();
+    private final ByteBuffer bytes = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    private final String lineSeparator = System.lineSeparator();
+    private final Thread thread;
+    private CharBuffer line = CharBuffer.allocate(RECORD_SIZE);
+    private ByteBuffer encoded = ByteBuffer.allocate(RECORD_SIZE);
+
+    public ChannelRecordWriter(final FileChannel channel) {
+        this.channel = channel;
+        this.thread = new Thread(this::drain, "walk-output");
+        thread.start();
+    }
+
+    @Override
+    public void write(final String fileName, final String hash) {
+        try {
+            put(new Entry(fileName, hash, null));
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            logger.log(Level.WARNING, "Error while writing output: {0}", "interrupted");
+        } catch (final IOException e) {
+            logger.log(Level.WARNING, "Error while writing output: {0}", e.getMessage());
+        }
+    }
+
+    // Returns once every record written before the call has reached the channel
+    @Override
+    public void flush() throws IOException {
+        final CountDownLatch flushed = new CountDownLatch(1);
+        try {
+            put(new Entry(null, null, flushed));
+            while (!flushed.await(LIVENESS_CHECK_MILLIS, TimeUnit.MILLISECONDS)) {
+                checkAlive();
+            }
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while flushing output");
+        }
+    }
+
+    // Fails instead of waiting forever once the output thread has died
+    private void put(final Entry entry) throws IOException, InterruptedException {
+        while (!queue.offer(entry, LIVENESS_CHECK_MILLIS, TimeUnit.MILLISECONDS)) {
+            checkAlive();
+        }
+    }
+
+    private void checkAlive() throws IOException {
+        if (!thread.isAlive()) {
+            throw new IOException("Output thread stopped");
+        }
+    }
+
+    // Errors are logged and writing goes on with the next batch, as with a buffered writer.
+    // An interrupt does not stop the thread either, so writers and flushes are not left waiting
+    private void drain() {
+        final List<Entry> batch = new ArrayList<>(BATCH_SIZE);
+        boolean interrupted = false;
+        while (true) {
+            try {
+                batch.add(queue.take());
+            } catch (final InterruptedException e) {
+                if (!interrupted) {
+                    logger.log(Level.WARNING, "Error while writing output: {0}", "interrupted");
+                }
+                interrupted = true;
+                continue;
+            }
+            queue.drainTo(batch, BATCH_SIZE - 1);
+            for (final Entry entry : batch) {
+                if (entry == END) {
+                    writeBuffer();
+                    if (interrupted) {
+                        Thread.currentThread().interrupt();
+                    }
+                    return;
+                }
+                if (entry.flushed() != null) {
+                    writeBuffer();
+                    entry.flushed().countDown();
+                } else if (encode(entry)) {
+                    commit();
+                }
+            }
+            batch.clear();
+            writeBuffer();
+        }
+    }
+
+    // Encodes the whole record into the scratch buffer, so a failure leaves no partial record
+    private boolean encode(final Entry entry) {
+        final int length = entry.hash().length() + 1 + entry.fileName().length()
+                + lineSeparator.length();
+        if (line.capacity() < length) {
+            line = CharBuffer.allocate(Math.max(length, line.capacity() * 2));
+        }
+        line.clear();
+        line.put(entry.hash()).put(' ').put(entry.fileName()).put(lineSeparator).flip();
+        while (true) {
+            encoder.reset();
+            encoded.clear();
+            CoderResult result = encoder.encode(line, encoded, true);
+            if (result.isUnderflow()) {
+                result = encoder.flush(encoded);
+            }
+            if (result.isUnderflow()) {
+                encoded.flip();
+                return true;
+            }
+            if (!result.isOverflow()) {
+                logger.log(
+                        Level.WARNING,
+                        "Error while writing output: {0}",
+                        "cannot encode " + entry.fileName()
+                );
+                return false;
+            }
+            encoded = ByteBuffer.allocate(encoded.capacity() * 2);
+            line.rewind();
+        }
+    }
+
+    private void commit() {
+        if (encoded.remaining() > bytes.remaining()) {
+            writeBuffer();
+        }
+        if (encoded.remaining() > bytes.remaining()) {
+            write(encoded);
+        } else {
+            bytes.put(encoded);
+        }
+    }
+
+    private void writeBuffer() {
+        bytes.flip();
+        write(bytes);
+        bytes.clear();
+    }
+
+    private void write(final ByteBuffer buffer) {
+        try {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        } catch (final IOException e) {
+            logger.log(Level.WARNING, "Error while writing output: {0}", e.getMessage());
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        boolean interrupted = false;
+        while (true) {
+            try {
+                if (!thread.isAlive()
+                        || queue.offer(END, LIVENESS_CHECK_MILLIS, TimeUnit.MILLISECONDS)) {
+                    break;
+                }
+            } catch (final InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        while (true) {
+            try {
+                thread.join();
+                break;
+            } catch (final InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        channel.close();
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private record Entry(String fileName, String hash, CountDownLatch flushed) {}
+}
\ No newline at end of file
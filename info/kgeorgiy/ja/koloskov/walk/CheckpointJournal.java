@@ -0,0 +1,128 @@
+package info.kgeorgiy.ja.koloskov.walk;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+// Progress is tracked on the output stage: a checkpoint means every record of
+// the first line() input lines, plus records() records of the next line, is in
+// the first offset() bytes of the output file.
+public class CheckpointJournal {
+
+    private static final Logger logger = Logger.getLogger(CheckpointJournal.class.getName());
+    private static final int MAGIC = 0x57434b31;
+
+    private final Path file;
+    private final String signature;
+    private final RecordWriter writer;
+    private final Path output;
+    private final long intervalNanos;
+    private final boolean withinLines;
+    private long line;
+    private long records;
+    private long lastCheckpoint = System.nanoTime();
+
+    public CheckpointJournal(
+            final Path file,
+            final String signature,
+            final Checkpoint start,
+            final RecordWriter writer,
+            final Path output,
+            final long intervalMillis,
+            final boolean withinLines
+    ) {
+        this.file = file;
+        this.signature = signature;
+        this.writer = writer;
+        this.output = output;
+        this.intervalNanos = TimeUnit.MILLISECONDS.toNanos(intervalMillis);
+        this.withinLines = withinLines;
+        this.line = start.line();
+        this.records = start.records();
+    }
+
+    public static Checkpoint read(final Path file, final String signature, final Path output) {
+        try (final DataInputStream in = new DataInputStream(Files.newInputStream(file))) {
+            if (in.readInt() != MAGIC || !signature.equals(in.readUTF())) {
+                logger.log(Level.WARNING, "Journal of another walk, starting over: {0}", file);
+                return Checkpoint.START;
+            }
+            final Checkpoint checkpoint = new Checkpoint(
+                    in.readLong(),
+                    in.readLong(),
+                    in.readLong()
+            );
+            if (!Files.exists(output) || Files.size(output) < checkpoint.offset()) {
+                logger.log(
+                        Level.WARNING,
+                        "Output shorter than journal, starting over: {0}",
+                        output
+                );
+                return Checkpoint.START;
+            }
+            logger.log(Level.INFO, "Resuming from {0}", checkpoint);
+            return checkpoint;
+        } catch (final NoSuchFileException e) {
+            return Checkpoint.START;
+        } catch (final IOException e) {
+            logger.log(Level.WARNING, "Failed to read journal: " + file + ": " + e.getMessage());
+            return Checkpoint.START;
+        }
+    }
+
+    public void recordWritten() {
+        records++;
+        if (withinLines) {
+            checkpointIfDue();
+        }
+    }
+
+    public void lineDone(final long index) {
+        line = index + 1;
+        records = 0;
+        checkpointIfDue();
+    }
+
+    private void checkpointIfDue() {
+        if (System.nanoTime() - lastCheckpoint >= intervalNanos) {
+            checkpoint();
+        }
+    }
+
+    public void checkpoint() {
+        lastCheckpoint = System.nanoTime();
+        final Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try {
+            writer.flush();
+            try (final DataOutputStream out = new DataOutputStream(Files.newOutputStream(temp))) {
+                out.writeInt(MAGIC);
+                out.writeUTF(signature);
+                out.writeLong(line);
+                out.writeLong(records);
+                out.writeLong(Files.size(output));
+            }
+            HashCache.replace(temp, file);
+        } catch (final IOException e) {
+            logger.log(Level.WARNING, "Failed to write journal: " + file + ": " + e.getMessage());
+        }
+    }
+
+    public void complete() {
+        try {
+            Files.deleteIfExists(file);
+        } catch (final IOException e) {
+            logger.log(Level.WARNING, "Failed to remove journal: " + file + ": " + e.getMessage());
+        }
+    }
+
+    public record Checkpoint(long line, long records, long offset) {
+
+        public static final Checkpoint START = new Checkpoint(0, 0, 0);
+    }
+}
\ No newline at end of file
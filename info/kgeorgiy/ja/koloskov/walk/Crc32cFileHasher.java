@@ -0,0 +1,31 @@
+package info.kgeorgiy.ja.koloskov.walk;
+
+import java.nio.ByteBuffer;
+import java.util.zip.CRC32C;
+
+public class Crc32cFileHasher extends ChannelFileHasher {
+
+    public static final String ALGORITHM = "CRC32C";
+    private static final int DIGEST_LENGTH = Integer.BYTES;
+    private final CRC32C crc = new CRC32C();
+    private final ByteBuffer output = ByteBuffer.allocate(DIGEST_LENGTH);
+
+    public Crc32cFileHasher(final int hashLength, final ReadStrategy strategy) {
+        super(hashLength < 0 ? DIGEST_LENGTH : Math.min(hashLength, DIGEST_LENGTH), strategy);
+    }
+
+    @Override
+    protected void reset() {
+        crc.reset();
+    }
+
+    @Override
+    protected void update(final ByteBuffer data) {
+        crc.update(data);
+    }
+
+    @Override
+    protected byte[] digest() {
+        return output.putInt(0, (int) crc.getValue()).array();
+    }
+}
\ No newline at end of file
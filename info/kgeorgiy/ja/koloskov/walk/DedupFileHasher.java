@@ -0,0 +1,37 @@
+package info.kgeorgiy.ja.koloskov.walk;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+
+public class DedupFileHasher implements FileHasher {
+
+    private final HashMemo memo;
+    private final FileHasher delegate;
+
+    public DedupFileHasher(final HashMemo memo, final FileHasher delegate) {
+        this.memo = memo;
+        this.delegate = delegate;
+    }
+
+    @Override
+    public String getHash(final Path file) throws IOException {
+        return getHash(file, Files.readAttributes(file, BasicFileAttributes.class));
+    }
+
+    @Override
+    public String getHash(final Path file, final BasicFileAttributes attrs) throws IOException {
+        return memo.computeIfAbsent(attrs, () -> delegate.getHash(file, attrs));
+    }
+
+    @Override
+    public int getHashLength() {
+        return delegate.getHashLength();
+    }
+
+    @Override
+    public String getNullHash() {
+        return delegate.getNullHash();
+    }
+}
\ No newline at end of file
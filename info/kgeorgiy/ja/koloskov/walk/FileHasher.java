@@ -2,12 +2,17 @@ package info.kgeorgiy.ja.koloskov.walk;
 
 import java.io.IOException;
 import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
 
 public interface FileHasher {
 
     String getHash(Path file) throws IOException;
 
+    default String getHash(final Path file, final BasicFileAttributes attrs) throws IOException {
+        return getHash(file);
+    }
+
     int getHashLength();
 
     String getNullHash();
-}
+}
\ No newline at end of file
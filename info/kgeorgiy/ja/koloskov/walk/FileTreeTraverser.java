@@ -0,0 +1,29 @@
+package info.kgeorgiy.ja.koloskov.walk;
+
+import java.io.IOException;
+import java.nio.file.FileVisitOption;
+import java.nio.file.FileVisitor;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.EnumSet;
+
+@FunctionalInterface
+public interface FileTreeTraverser {
+
+    FileTreeTraverser SEQUENTIAL = (start, maxDepth, visitor) -> Files.walkFileTree(
+            start,
+            EnumSet.noneOf(FileVisitOption.class),
+            maxDepth,
+            visitor
+    );
+
+    void walk(Path start, int maxDepth, FileVisitor<? super Path> visitor) throws IOException;
+
+    // Implemented by visitors that know in advance which directories preVisitDirectory enters,
+    // so a traverser may list those ahead of time and never touches the others
+    @FunctionalInterface
+    interface DirectoryFilter {
+
+        boolean entersDirectory(Path dir);
+    }
+}
\ No newline at end of file
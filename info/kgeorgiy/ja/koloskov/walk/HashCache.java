@@ -0,0 +1,184 @@
+package info.kgeorgiy.ja.koloskov.walk;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+public class HashCache {
+
+    private static final Logger logger = Logger.getLogger(HashCache.class.getName());
+    private static final int MAGIC = 0x57484331;
+    private static final int IO_BUFFER_SIZE = 1 << 16;
+
+    private final Path file;
+    private final String signature;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+    private HashCache(final Path file, final String signature) {
+        this.file = file;
+        this.signature = signature;
+    }
+
+    public static HashCache load(final Path file, final String signature) {
+        final HashCache cache = new HashCache(file, signature);
+        try (final DataInputStream in = new DataInputStream(new BufferedInputStream(
+                Files.newInputStream(file),
+                IO_BUFFER_SIZE
+        ))) {
+            if (in.readInt() != MAGIC || !signature.equals(in.readUTF())) {
+                logger.log(Level.INFO, "Discarding incompatible hash cache: {0}", file);
+                return cache;
+            }
+            final long length = Files.size(file);
+            final int size = in.readInt();
+            for (int i = 0; i < size; i++) {
+                final String path = readString(in, length);
+                final Entry entry = new Entry(
+                        in.readLong(),
+                        in.readLong(),
+                        readString(in, length),
+                        in.readUTF(),
+                        false
+                );
+                cache.entries.put(path, entry);
+            }
+        } catch (final NoSuchFileException e) {
+            logger.log(Level.INFO, "Hash cache not found, starting empty: {0}", file);
+        } catch (final EOFException e) {
+            logger.log(Level.WARNING, "Truncated hash cache, starting empty: {0}", file);
+            cache.entries.clear();
+        } catch (final IOException e) {
+            logger.log(Level.WARNING, "Failed to load hash cache: " + file + ": " + e.getMessage());
+            cache.entries.clear();
+        }
+        return cache;
+    }
+
+    public String get(final Path path, final BasicFileAttributes attrs) {
+        final String key = key(path);
+        final Entry entry = entries.get(key);
+        if (entry == null || !entry.matches(attrs)) {
+            return null;
+        }
+        if (!entry.used()) {
+            entries.replace(key, entry, entry.markUsed());
+        }
+        return entry.hash();
+    }
+
+    public void put(final Path path, final BasicFileAttributes attrs, final String hash) {
+        entries.put(key(path), new Entry(
+                attrs.size(),
+                modificationTime(attrs),
+                fileKey(attrs),
+                hash,
+                true
+        ));
+    }
+
+    // Only entries seen during this run survive, so the file never accumulates stale paths
+    public void save() {
+        final Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try {
+            try (final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                    Files.newOutputStream(temp),
+                    IO_BUFFER_SIZE
+            ))) {
+                out.writeInt(MAGIC);
+                out.writeUTF(signature);
+                final var used = entries.entrySet().stream()
+                        .filter(e -> e.getValue().used())
+                        .toList();
+                out.writeInt(used.size());
+                for (final var e : used) {
+                    writeString(out, e.getKey());
+                    final Entry entry = e.getValue();
+                    out.writeLong(entry.size());
+                    out.writeLong(entry.modified());
+                    writeString(out, entry.fileKey());
+                    out.writeUTF(entry.hash());
+                }
+            }
+            replace(temp, file);
+        } catch (final IOException e) {
+            logger.log(Level.WARNING, "Failed to save hash cache: " + file + ": " + e.getMessage());
+        }
+    }
+
+    // A concurrent or interrupted run sees either the old file or the new one, never a mix.
+    // Also used for the checkpoint journal
+    static void replace(final Path temp, final Path file) throws IOException {
+        try {
+            Files.move(
+                    temp,
+                    file,
+                    StandardCopyOption.ATOMIC_MOVE,
+                    StandardCopyOption.REPLACE_EXISTING
+            );
+        } catch (final AtomicMoveNotSupportedException e) {
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private static String key(final Path path) {
+        return path.toAbsolutePath().normalize().toString();
+    }
+
+    private static long modificationTime(final BasicFileAttributes attrs) {
+        return attrs.lastModifiedTime().to(TimeUnit.NANOSECONDS);
+    }
+
+    private static String fileKey(final BasicFileAttributes attrs) {
+        return Objects.toString(attrs.fileKey(), "");
+    }
+
+    // A corrupt length must not be trusted for an allocation, no string is longer than the file
+    private static String readString(final DataInputStream in, final long limit)
+            throws IOException {
+        final int length = in.readInt();
+        if (length < 0 || length > limit) {
+            throw new IOException("Invalid string length " + length);
+        }
+        final byte[] bytes = in.readNBytes(length);
+        if (bytes.length < length) {
+            throw new EOFException();
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writeString(final DataOutputStream out, final String value)
+            throws IOException {
+        final byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private record Entry(long size, long modified, String fileKey, String hash, boolean used) {
+
+        boolean matches(final BasicFileAttributes attrs) {
+            return size == attrs.size()
+                    && modified == modificationTime(attrs)
+                    && fileKey.equals(HashCache.fileKey(attrs));
+        }
+
+        Entry markUsed() {
+            return new Entry(size, modified, fileKey, hash, true);
+        }
+    }
+}
\ No newline at end of file
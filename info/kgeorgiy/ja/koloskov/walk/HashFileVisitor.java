@@ -5,36 +5,82 @@ import java.nio.file.FileVisitResult;
 import java.nio.file.Path;
 import java.nio.file.SimpleFileVisitor;
 import java.nio.file.attribute.BasicFileAttributes;
+import java.security.NoSuchAlgorithmException;
 import java.util.function.BiConsumer;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
-public class HashFileVisitor extends SimpleFileVisitor<Path> {
+public class HashFileVisitor extends SimpleFileVisitor<Path>
+        implements FileTreeTraverser.DirectoryFilter {
 
     private static final Logger logger = Logger.getLogger(HashFileVisitor.class.getName());
-    private final FileHasher hasher;
-    private final BiConsumer<Path, String> action;
+    private final HashPipeline pipeline;
+    private final WalkFilter filter;
+    private Path root;
 
+    // Hashes every file on the visiting thread and passes it to the action with its hash
     public HashFileVisitor(final FileHasher hasher, final BiConsumer<Path, String> action) {
-        this.hasher = hasher;
-        this.action = action;
+        this(singleThreaded(hasher, action));
+    }
+
+    public HashFileVisitor(final HashPipeline pipeline) {
+        this(pipeline, WalkFilter.ALL);
+    }
+
+    public HashFileVisitor(final HashPipeline pipeline, final WalkFilter filter) {
+        this.pipeline = pipeline;
+        this.filter = filter;
+    }
+
+    // Roots are named explicitly, so the filter only selects what is found below them and a root
+    // always gets a record, like a missing one
+    public void walk(final FileTreeTraverser traverser, final Path root, final int maxDepth)
+            throws IOException {
+        this.root = root;
+        traverser.walk(root, maxDepth, this);
+    }
+
+    private static HashPipeline singleThreaded(
+            final FileHasher hasher,
+            final BiConsumer<Path, String> action
+    ) {
+        try {
+            return new HashPipeline(
+                    () -> hasher,
+                    1,
+                    result -> action.accept(Path.of(result.path()), result.hash()),
+                    null
+            );
+        } catch (final NoSuchAlgorithmException e) {
+            throw new AssertionError("An existing hasher cannot be missing", e);
+        }
+    }
+
+    @Override
+    public boolean entersDirectory(final Path dir) {
+        return dir.equals(root) || filter.acceptsDirectory(dir);
+    }
+
+    @Override
+    public FileVisitResult preVisitDirectory(final Path dir, final BasicFileAttributes attrs) {
+        return entersDirectory(dir) ? FileVisitResult.CONTINUE : FileVisitResult.SKIP_SUBTREE;
     }
 
     @Override
     public FileVisitResult visitFile(final Path file, final BasicFileAttributes attrs) {
-        try {
-            action.accept(file, hasher.getHash(file));
-        } catch (final IOException e) {
-            logger.log(Level.WARNING, "Failed to hash file: " + file + ": " + e.getMessage());
-            action.accept(file, hasher.getNullHash());
+        if (file.equals(root) || filter.acceptsFile(file, attrs)) {
+            pipeline.submit(file, attrs);
         }
         return FileVisitResult.CONTINUE;
     }
 
     @Override
     public FileVisitResult visitFileFailed(final Path file, final IOException exc) {
+        if (!file.equals(root) && !filter.acceptsPath(file)) {
+            return FileVisitResult.CONTINUE;
+        }
         logger.log(Level.WARNING, "Failed to access file: " + file + ": " + exc.getMessage());
-        action.accept(file, hasher.getNullHash());
+        pipeline.submitNull(file.toString());
         return FileVisitResult.CONTINUE;
     }
 }
\ No newline at end of file
@@ -0,0 +1,83 @@
+package info.kgeorgiy.ja.koloskov.walk;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+public class HashMemo {
+
+    private final Map<Key, CompletableFuture<String>> hashes;
+
+    public HashMemo(final int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Memo capacity must be positive");
+        }
+        this.hashes = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(
+                    final Map.Entry<Key, CompletableFuture<String>> eldest
+            ) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    public String computeIfAbsent(final BasicFileAttributes attrs, final HashAction action)
+            throws IOException {
+        if (attrs.fileKey() == null) {
+            return action.hash();
+        }
+
+        final Key key = new Key(attrs.fileKey(), attrs.size(), attrs.lastModifiedTime());
+        final CompletableFuture<String> created = new CompletableFuture<>();
+        final CompletableFuture<String> existing;
+        synchronized (hashes) {
+            existing = hashes.putIfAbsent(key, created);
+        }
+        if (existing != null) {
+            return await(existing);
+        }
+
+        try {
+            final String hash = action.hash();
+            created.complete(hash);
+            return hash;
+        } catch (final IOException | RuntimeException e) {
+            synchronized (hashes) {
+                hashes.remove(key, created);
+            }
+            created.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    private static String await(final CompletableFuture<String> future) throws IOException {
+        try {
+            return future.get();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for a duplicate hash");
+        } catch (final ExecutionException e) {
+            if (e.getCause() instanceof final IOException cause) {
+                throw cause;
+            }
+            if (e.getCause() instanceof final RuntimeException cause) {
+                throw cause;
+            }
+            throw new IOException(e.getCause());
+        }
+    }
+
+    @FunctionalInterface
+    public interface HashAction {
+
+        String hash() throws IOException;
+    }
+
+    private record Key(Object fileKey, long size, FileTime modified) {}
+}
\ No newline at end of file
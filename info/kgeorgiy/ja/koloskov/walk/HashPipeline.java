@@ -0,0 +1,367 @@
+package info.kgeorgiy.ja.koloskov.walk;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+public class HashPipeline implements AutoCloseable {
+
+    private static final Logger logger = Logger.getLogger(HashPipeline.class.getName());
+    private static final int QUEUE_CAPACITY_PER_THREAD = 64;
+    private static final long SMALL_FILE_SIZE = 16 * 1024;
+    private static final int BATCH_FILES = 32;
+    private static final Record END = new Record(null, null, null);
+
+    private final FileHasher hasher;
+    private final Consumer<WalkResult> sink;
+    private final WalkMetrics metrics;
+    private final String nullHash;
+    private final Semaphore openFiles;
+    private final ExecutorService executor;
+    private final BlockingQueue<Record> records;
+    private final Thread writerThread;
+    private final List<Path> batchFiles = new ArrayList<>();
+    private final List<BasicFileAttributes> batchAttrs = new ArrayList<>();
+    private volatile RuntimeException failure;
+    private boolean failureReported;
+    private long skipped;
+
+    public HashPipeline(
+            final HasherFactory factory,
+            final int threads,
+            final Consumer<WalkResult> sink,
+            final WalkMetrics metrics
+    ) throws NoSuchAlgorithmException {
+        this(factory, threads, false, sink, metrics);
+    }
+
+    // With virtualThreads every file is hashed on its own virtual thread and threads only caps
+    // the number of files open at once
+    public HashPipeline(
+            final HasherFactory factory,
+            final int threads,
+            final boolean virtualThreads,
+            final Consumer<WalkResult> sink,
+            final WalkMetrics metrics
+    ) throws NoSuchAlgorithmException {
+        this(factory, threads, virtualThreads, false, sink, metrics);
+    }
+
+    // Daemon threads let the JVM exit while a pipeline is left blocked by an abandoned consumer
+    public HashPipeline(
+            final HasherFactory factory,
+            final int threads,
+            final boolean virtualThreads,
+            final boolean daemon,
+            final Consumer<WalkResult> sink,
+            final WalkMetrics metrics
+    ) throws NoSuchAlgorithmException {
+        this.hasher = new PooledFileHasher(factory);
+        this.sink = sink;
+        this.metrics = metrics;
+        final int workers = Math.max(1, threads);
+        this.nullHash = hasher.getNullHash();
+
+        if (workers == 1 && !virtualThreads) {
+            this.openFiles = null;
+            this.executor = null;
+            this.records = null;
+            this.writerThread = null;
+        } else {
+            if (virtualThreads) {
+                this.openFiles = new Semaphore(workers);
+                this.executor = Executors.newThreadPerTaskExecutor(
+                        Thread.ofVirtual().name("walk-hasher-", 0).factory()
+                );
+            } else {
+                this.openFiles = null;
+                this.executor = Executors.newFixedThreadPool(
+                        workers,
+                        Thread.ofPlatform().daemon(daemon).name("walk-hasher-", 0).factory()
+                );
+            }
+            this.records = new ArrayBlockingQueue<>(workers * QUEUE_CAPACITY_PER_THREAD);
+            this.writerThread = new Thread(this::drain, "walk-writer");
+            writerThread.setDaemon(daemon);
+            writerThread.start();
+        }
+    }
+
+    // Drops the next count records without hashing them, skip(0) stops dropping
+    public void skip(final long count) {
+        skipped = count;
+    }
+
+    public void submit(final Path file, final BasicFileAttributes attrs) {
+        checkFailure();
+        if (skip()) {
+            return;
+        }
+        final long start = System.nanoTime();
+        if (executor == null) {
+            sink.accept(hash(file, attrs));
+        } else if (openFiles == null && attrs.isRegularFile() && attrs.size() <= SMALL_FILE_SIZE) {
+            batchFiles.add(file);
+            batchAttrs.add(attrs);
+            if (batchFiles.size() == BATCH_FILES) {
+                flushBatch();
+            }
+        } else {
+            flushBatch();
+            enqueue(new Record(
+                    new String[]{file.toString()},
+                    executor.submit(() -> new WalkResult[]{hashLimited(file, attrs)}),
+                    null
+            ));
+        }
+        if (metrics != null) {
+            metrics.submitted(System.nanoTime() - start);
+        }
+    }
+
+    public void submitNull(final String name) {
+        checkFailure();
+        if (skip()) {
+            return;
+        }
+        if (metrics != null) {
+            metrics.accessFailed();
+        }
+        final WalkResult result = new WalkResult(name, nullHash, WalkResult.Status.ACCESS_FAILED);
+        if (executor == null) {
+            sink.accept(result);
+        } else {
+            flushBatch();
+            enqueue(new Record(
+                    new String[]{name},
+                    CompletableFuture.completedFuture(new WalkResult[]{result}),
+                    null
+            ));
+        }
+    }
+
+    // Runs the action on the output stage once every record submitted before it is written
+    public void submitAction(final Runnable action) {
+        checkFailure();
+        if (executor == null) {
+            action.run();
+        } else {
+            flushBatch();
+            enqueue(new Record(null, null, action));
+        }
+    }
+
+    // Rethrows a failure of the output stage to the producer once
+    private void checkFailure() {
+        final RuntimeException e = failure;
+        if (e != null && !failureReported) {
+            failureReported = true;
+            throw e;
+        }
+    }
+
+    private boolean skip() {
+        if (skipped > 0) {
+            skipped--;
+            return true;
+        }
+        return false;
+    }
+
+    // Small files go to a worker together, so queueing costs are paid once per batch. Virtual
+    // threads are cheap enough that each file keeps its own
+    private void flushBatch() {
+        if (batchFiles.isEmpty()) {
+            return;
+        }
+        final Path[] files = batchFiles.toArray(Path[]::new);
+        final BasicFileAttributes[] attrs = batchAttrs.toArray(BasicFileAttributes[]::new);
+        batchFiles.clear();
+        batchAttrs.clear();
+        final String[] names = new String[files.length];
+        for (int i = 0; i < files.length; i++) {
+            names[i] = files[i].toString();
+        }
+        enqueue(new Record(names, executor.submit(() -> hashBatch(files, attrs)), null));
+    }
+
+    private WalkResult[] hashBatch(final Path[] files, final BasicFileAttributes[] attrs)
+            throws InterruptedException {
+        final WalkResult[] results = new WalkResult[files.length];
+        for (int i = 0; i < files.length; i++) {
+            try {
+                results[i] = hashLimited(files[i], attrs[i]);
+            } catch (final RuntimeException e) {
+                logger.log(Level.WARNING, "Failed to hash file: " + files[i] + ": " + e);
+                results[i] = new WalkResult(
+                        files[i].toString(),
+                        nullHash,
+                        WalkResult.Status.HASH_FAILED
+                );
+            }
+        }
+        return results;
+    }
+
+    private WalkResult hashLimited(final Path file, final BasicFileAttributes attrs)
+            throws InterruptedException {
+        if (openFiles == null) {
+            return hash(file, attrs);
+        }
+        openFiles.acquire();
+        try {
+            return hash(file, attrs);
+        } finally {
+            openFiles.release();
+        }
+    }
+
+    private WalkResult hash(final Path file, final BasicFileAttributes attrs) {
+        final long start = System.nanoTime();
+        try {
+            final String hash = hasher.getHash(file, attrs);
+            if (metrics != null) {
+                metrics.fileHashed(System.nanoTime() - start);
+            }
+            return new WalkResult(file.toString(), hash, WalkResult.Status.OK);
+        } catch (final IOException e) {
+            logger.log(Level.WARNING, "Failed to hash file: " + file + ": " + e.getMessage());
+            if (metrics != null) {
+                metrics.hashFailed();
+            }
+            return new WalkResult(file.toString(), nullHash, WalkResult.Status.HASH_FAILED);
+        }
+    }
+
+    private void enqueue(final Record record) {
+        try {
+            records.put(record);
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            if (record.results() != null) {
+                record.results().cancel(true);
+            }
+            logger.log(
+                    Level.WARNING,
+                    "Interrupted while scheduling: {0}",
+                    Arrays.toString(record.names())
+            );
+        }
+    }
+
+    // Keeps taking records after a failure or an interrupt, so producers and close never block
+    // on a full queue; records taken after the failure are dropped
+    private void drain() {
+        boolean interrupted = false;
+        while (true) {
+            final Record record;
+            try {
+                record = records.take();
+            } catch (final InterruptedException e) {
+                interrupted = true;
+                fail(new IllegalStateException("Output stage interrupted", e));
+                continue;
+            }
+            if (record == END) {
+                break;
+            }
+            if (failure != null) {
+                if (record.results() != null) {
+                    record.results().cancel(false);
+                }
+                continue;
+            }
+            try {
+                if (record.action() != null) {
+                    record.action().run();
+                } else {
+                    for (final WalkResult result : await(record)) {
+                        sink.accept(result);
+                    }
+                }
+            } catch (final InterruptedException e) {
+                interrupted = true;
+                fail(new IllegalStateException("Output stage interrupted", e));
+            } catch (final RuntimeException e) {
+                fail(e);
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void fail(final RuntimeException e) {
+        if (failure == null) {
+            logger.log(Level.SEVERE, "Output stage failed: " + e.getMessage());
+            failure = e;
+        }
+    }
+
+    private WalkResult[] await(final Record record) throws InterruptedException {
+        try {
+            return record.results().get();
+        } catch (final ExecutionException e) {
+            final WalkResult[] results = new WalkResult[record.names().length];
+            for (int i = 0; i < results.length; i++) {
+                final String name = record.names()[i];
+                logger.log(Level.WARNING, "Failed to hash file: " + name + ": " + e.getCause());
+                results[i] = new WalkResult(name, nullHash, WalkResult.Status.HASH_FAILED);
+            }
+            return results;
+        }
+    }
+
+    @Override
+    public void close() {
+        if (executor == null) {
+            return;
+        }
+        flushBatch();
+        boolean interrupted = false;
+        while (true) {
+            try {
+                records.put(END);
+                break;
+            } catch (final InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        while (true) {
+            try {
+                writerThread.join();
+                break;
+            } catch (final InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        executor.shutdown();
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        checkFailure();
+    }
+
+    @FunctionalInterface
+    public interface HasherFactory {
+
+        FileHasher create() throws NoSuchAlgorithmException;
+    }
+
+    private record Record(String[] names, Future<WalkResult[]> results, Runnable action) {}
+}
@@ -0,0 +1,88 @@
+package info.kgeorgiy.ja.koloskov.walk;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.StandardCharsets;
+
+public class LineScanner implements Closeable {
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final ReadableByteChannel channel;
+    private final CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder();
+    private final ByteBuffer bytes = ByteBuffer.allocate(BUFFER_SIZE);
+    private final CharBuffer chars = CharBuffer.allocate(BUFFER_SIZE).flip();
+    private final StringBuilder line = new StringBuilder();
+    private boolean endOfInput;
+    private boolean flushed;
+    private boolean skipLineFeed;
+
+    public LineScanner(final ReadableByteChannel channel) {
+        this.channel = channel;
+    }
+
+    // The returned sequence is reused by the next call
+    public CharSequence nextLine() throws IOException {
+        line.setLength(0);
+        while (chars.hasRemaining() || fill()) {
+            while (chars.hasRemaining()) {
+                final char c = chars.get();
+                if (skipLineFeed) {
+                    skipLineFeed = false;
+                    if (c == '\n') {
+                        continue;
+                    }
+                }
+                if (c == '\n' || c == '\r') {
+                    skipLineFeed = c == '\r';
+                    return line;
+                }
+                line.append(c);
+            }
+        }
+        return line.isEmpty() ? null : line;
+    }
+
+    public static boolean isBlank(final CharSequence sequence) {
+        for (int i = 0; i < sequence.length(); i++) {
+            if (sequence.charAt(i) > ' ') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean fill() throws IOException {
+        if (flushed) {
+            return false;
+        }
+        chars.clear();
+        do {
+            if (!endOfInput && channel.read(bytes) < 0) {
+                endOfInput = true;
+            }
+            bytes.flip();
+            final CoderResult result = decoder.decode(bytes, chars, endOfInput);
+            bytes.compact();
+            if (result.isError()) {
+                result.throwException();
+            }
+            if (endOfInput) {
+                decoder.flush(chars);
+                flushed = true;
+            }
+        } while (chars.position() == 0 && !flushed);
+        chars.flip();
+        return chars.hasRemaining();
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
\ No newline at end of file
@@ -0,0 +1,185 @@
+package info.kgeorgiy.ja.koloskov.walk;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.function.BiConsumer;
+
+// Index of a previous walk output kept as its lines packed into pages plus their locations,
+// hashed by path. The manifest is streamed, so its size is bounded only by the heap
+public class ManifestDiff {
+
+    public static final String ADDED = "+";
+    public static final String REMOVED = "-";
+    public static final String CHANGED = "~";
+    private static final int PAGE_SIZE = 1 << 20;
+
+    private byte[][] pages = new byte[16][];
+    private int pageCount;
+    private int pageUsed;
+    // Page index in the high half, offset in the low half
+    private long[] lineStarts = new long[1024];
+    private int[] pathOffsets = new int[1024];
+    private int[] lineLengths = new int[1024];
+    private int size;
+    private int[] table;
+    private final BitSet seen = new BitSet();
+
+    private ManifestDiff() {
+    }
+
+    // Each line holds hashFields space-separated hashes followed by the path
+    public static ManifestDiff load(final Path manifest, final int hashFields) throws IOException {
+        final ManifestDiff diff = new ManifestDiff();
+        try (final LineScanner scanner = new LineScanner(FileChannel.open(manifest))) {
+            diff.parse(scanner, manifest, hashFields);
+        }
+        diff.buildTable();
+        return diff;
+    }
+
+    private void parse(
+            final LineScanner scanner,
+            final Path manifest,
+            final int hashFields
+    ) throws IOException {
+        CharSequence text;
+        for (int line = 1; (text = scanner.nextLine()) != null; line++) {
+            if (text.isEmpty()) {
+                continue;
+            }
+            final byte[] bytes = text.toString().getBytes(StandardCharsets.UTF_8);
+            int path = 0;
+            for (int field = 0; field < hashFields; field++) {
+                while (path < bytes.length && bytes[path] != ' ') {
+                    path++;
+                }
+                if (path == bytes.length) {
+                    throw new IOException("Malformed line " + line + " of " + manifest);
+                }
+                path++;
+            }
+            add(bytes, path);
+        }
+    }
+
+    private void add(final byte[] line, final int pathOffset) {
+        if (size == lineStarts.length) {
+            lineStarts = Arrays.copyOf(lineStarts, size * 2);
+            pathOffsets = Arrays.copyOf(pathOffsets, size * 2);
+            lineLengths = Arrays.copyOf(lineLengths, size * 2);
+        }
+        // A line never spans pages, a longer one gets a page of its own
+        if (pageCount == 0 || pageUsed + line.length > pages[pageCount - 1].length) {
+            if (pageCount == pages.length) {
+                pages = Arrays.copyOf(pages, pageCount * 2);
+            }
+            pages[pageCount++] = new byte[Math.max(PAGE_SIZE, line.length)];
+            pageUsed = 0;
+        }
+        System.arraycopy(line, 0, pages[pageCount - 1], pageUsed, line.length);
+        lineStarts[size] = (long) (pageCount - 1) << 32 | pageUsed;
+        pathOffsets[size] = pathOffset;
+        lineLengths[size] = line.length;
+        pageUsed += line.length;
+        size++;
+    }
+
+    private void buildTable() {
+        table = new int[Integer.highestOneBit(Math.max(size, 1) * 2 + 1) << 1];
+        Arrays.fill(table, -1);
+        for (int entry = 0; entry < size; entry++) {
+            final byte[] page = page(entry);
+            final int start = offset(entry) + pathOffsets[entry];
+            final int length = lineLengths[entry] - pathOffsets[entry];
+            int slot = hash(page, start, length) & (table.length - 1);
+            while (table[slot] >= 0 && !pathEquals(table[slot], page, start, length)) {
+                slot = (slot + 1) & (table.length - 1);
+            }
+            // The first occurrence of a repeated path wins, later ones are dropped
+            if (table[slot] < 0) {
+                table[slot] = entry;
+            } else {
+                seen.set(entry);
+            }
+        }
+    }
+
+    // Returns the status-prefixed hash to write, or null if the entry is unchanged
+    public String compare(final String fileName, final String hash) {
+        final byte[] path = fileName.getBytes(StandardCharsets.UTF_8);
+        final int entry = find(path);
+        if (entry < 0) {
+            return ADDED + " " + hash;
+        }
+        seen.set(entry);
+        final byte[] current = hash.getBytes(StandardCharsets.UTF_8);
+        final int start = offset(entry);
+        return Arrays.equals(
+                current, 0, current.length,
+                page(entry), start, start + pathOffsets[entry] - 1
+        ) ? null : CHANGED + " " + hash;
+    }
+
+    // Reports every previous entry that compare has not matched
+    public void forEachRemoved(final BiConsumer<String, String> consumer) {
+        for (int entry = seen.nextClearBit(0); entry < size; entry = seen.nextClearBit(entry + 1)) {
+            consumer.accept(
+                    string(entry, pathOffsets[entry], lineLengths[entry]),
+                    REMOVED + " " + string(entry, 0, pathOffsets[entry] - 1)
+            );
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    private int find(final byte[] path) {
+        int slot = hash(path, 0, path.length) & (table.length - 1);
+        while (table[slot] >= 0) {
+            if (pathEquals(table[slot], path, 0, path.length)) {
+                return table[slot];
+            }
+            slot = (slot + 1) & (table.length - 1);
+        }
+        return -1;
+    }
+
+    private boolean pathEquals(
+            final int entry,
+            final byte[] bytes,
+            final int from,
+            final int length
+    ) {
+        final int start = offset(entry);
+        return Arrays.equals(
+                page(entry), start + pathOffsets[entry], start + lineLengths[entry],
+                bytes, from, from + length
+        );
+    }
+
+    private byte[] page(final int entry) {
+        return pages[(int) (lineStarts[entry] >>> 32)];
+    }
+
+    private int offset(final int entry) {
+        return (int) lineStarts[entry];
+    }
+
+    // Bounds are relative to the start of the entry's line
+    private String string(final int entry, final int from, final int to) {
+        return new String(page(entry), offset(entry) + from, to - from, StandardCharsets.UTF_8);
+    }
+
+    private static int hash(final byte[] bytes, final int from, final int length) {
+        int hash = 0x811c9dc5;
+        for (int i = from; i < from + length; i++) {
+            hash = (hash ^ bytes[i]) * 0x01000193;
+        }
+        return hash ^ (hash >>> 16);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,72 @@
+package info.kgeorgiy.ja.koloskov.walk;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.stream.Collectors;
+
+// Reads each file once and feeds every chunk to all hashers, which never read on their own
+public class MultiFileHasher extends ChannelFileHasher {
+
+    private static final String SEPARATOR = " ";
+    private final List<ChannelFileHasher> hashers;
+    private final byte[] output;
+
+    public MultiFileHasher(final List<ChannelFileHasher> hashers, final ReadStrategy strategy) {
+        super(hashers.stream().mapToInt(FileHasher::getHashLength).sum(), strategy);
+        this.hashers = List.copyOf(hashers);
+        this.output = new byte[getHashLength()];
+    }
+
+    @Override
+    protected void reset() {
+        hashers.forEach(ChannelFileHasher::reset);
+    }
+
+    @Override
+    protected void update(final ByteBuffer data) {
+        final int position = data.position();
+        for (final ChannelFileHasher hasher : hashers) {
+            hasher.update(data.position(position));
+        }
+    }
+
+    // Component digests cut or zero-padded to their hash lengths, one after another
+    @Override
+    protected byte[] digest() {
+        int offset = 0;
+        for (final ChannelFileHasher hasher : hashers) {
+            final byte[] digest = hasher.digest();
+            final int length = hasher.getHashLength();
+            final int copied = Math.min(length, digest.length);
+            System.arraycopy(digest, 0, output, offset, copied);
+            Arrays.fill(output, offset + copied, offset + length, (byte) 0);
+            offset += length;
+        }
+        return output;
+    }
+
+    @Override
+    protected String formatHash() {
+        final byte[] digest = digest();
+        final StringBuilder hash = new StringBuilder();
+        int offset = 0;
+        for (int i = 0; i < hashers.size(); i++) {
+            if (i > 0) {
+                hash.append(SEPARATOR);
+            }
+            final int length = hashers.get(i).getHashLength();
+            HexFormat.of().formatHex(hash, digest, offset, offset + length);
+            offset += length;
+        }
+        return hash.toString();
+    }
+
+    @Override
+    public String getNullHash() {
+        return hashers.stream()
+                .map(FileHasher::getNullHash)
+                .collect(Collectors.joining(SEPARATOR));
+    }
+}
\ No newline at end of file
@@ -1,55 +1,61 @@
 package info.kgeorgiy.ja.koloskov.walk;
 
-import java.io.IOException;
 import java.nio.ByteBuffer;
-import java.nio.channels.FileChannel;
-import java.nio.file.Path;
-import java.nio.file.StandardOpenOption;
+import java.security.DigestException;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
-import java.util.Arrays;
-import java.util.HexFormat;
-import java.util.logging.Level;
-import java.util.logging.Logger;
 
-public class MyFileHasher implements FileHasher {
+public class MyFileHasher extends ChannelFileHasher {
 
-    private static final Logger logger = Logger.getLogger(MyFileHasher.class.getName());
-    private static final int BUFFER_SIZE = 8192;
     private final MessageDigest digest;
-    private final int hashLength;
+    private final byte[] output;
 
     public MyFileHasher(final String algorithm, final int hashLength)
             throws NoSuchAlgorithmException {
-        this.digest = MessageDigest.getInstance(algorithm);
-        this.hashLength = hashLength < 0 ? digest.getDigestLength() : hashLength;
+        this(algorithm, hashLength, ReadStrategy.DEFAULT);
+    }
+
+    public MyFileHasher(final String algorithm, final int hashLength, final ReadStrategy strategy)
+            throws NoSuchAlgorithmException {
+        this(MessageDigest.getInstance(algorithm), hashLength, strategy);
+    }
+
+    private MyFileHasher(
+            final MessageDigest digest,
+            final int hashLength,
+            final ReadStrategy strategy
+    ) {
+        super(hashLength < 0 ? digest.getDigestLength() : hashLength, strategy);
+        this.digest = digest;
+        this.output = new byte[digest.getDigestLength()];
+    }
+
+    // Each thread borrows its own digest and buffers from a pool
+    public static FileHasher concurrent(
+            final String algorithm,
+            final int hashLength,
+            final ReadStrategy strategy
+    ) throws NoSuchAlgorithmException {
+        return new PooledFileHasher(() -> new MyFileHasher(algorithm, hashLength, strategy));
     }
 
     @Override
-    public String getHash(final Path filePath) throws IOException {
+    protected void reset() {
         digest.reset();
-        try (final FileChannel channel = FileChannel.open(filePath, StandardOpenOption.READ)) {
-            final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
-            while (channel.read(buffer) != -1) {
-                buffer.flip();
-                digest.update(buffer);
-                buffer.clear();
-            }
-        } catch (final IOException e) {
-            logger.log(Level.WARNING, "Error reading file: " + filePath + ": " + e.getMessage());
-            throw e;
-        }
-        return HexFormat.of().formatHex(digest.getDigestLength() == hashLength ? digest.digest()
-                                                : Arrays.copyOf(digest.digest(), hashLength));
     }
 
     @Override
-    public int getHashLength() {
-        return hashLength;
+    protected void update(final ByteBuffer data) {
+        digest.update(data);
     }
 
     @Override
-    public String getNullHash() {
-        return HexFormat.of().formatHex(new byte[getHashLength()]);
+    protected byte[] digest() {
+        try {
+            digest.digest(output, 0, output.length);
+        } catch (final DigestException e) {
+            throw new IllegalStateException("Digest does not fit its own length", e);
+        }
+        return output;
     }
-}
+}
\ No newline at end of file
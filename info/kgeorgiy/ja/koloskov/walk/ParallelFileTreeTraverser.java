@@ -0,0 +1,308 @@
+package info.kgeorgiy.ja.koloskov.walk;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryIteratorException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileVisitResult;
+import java.nio.file.FileVisitor;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+// Lists directories concurrently on a fork/join pool. Visitor callbacks are
+// serialized. In ordered mode they all run on the calling thread in the order
+// Files.walkFileTree uses. For a visitor that is a DirectoryFilter the pool lists
+// the next few subdirectories it enters ahead of time, so memory is bounded by the
+// listings in flight rather than by the tree. In unordered mode callbacks run as
+// soon as their directory is listed, and SKIP_SIBLINGS skips the siblings not yet
+// visited. Unlike Files.walkFileTree, a directory is opened only once
+// preVisitDirectory has returned CONTINUE, so one that cannot be opened gets
+// visitFileFailed after preVisitDirectory and no postVisitDirectory.
+public class ParallelFileTreeTraverser implements FileTreeTraverser {
+
+    private static final int PREFETCH_PER_THREAD = 2;
+
+    private final ForkJoinPool pool;
+    private final boolean ordered;
+    private final int prefetch;
+
+    public ParallelFileTreeTraverser(final ForkJoinPool pool, final boolean ordered) {
+        this.pool = pool;
+        this.ordered = ordered;
+        this.prefetch = Math.max(1, pool.getParallelism()) * PREFETCH_PER_THREAD;
+    }
+
+    @Override
+    public void walk(final Path start, final int maxDepth, final FileVisitor<? super Path> visitor)
+            throws IOException {
+        final Traversal traversal = new Traversal(visitor, maxDepth);
+        final BasicFileAttributes attrs;
+        try {
+            attrs = readAttributes(start);
+        } catch (final IOException e) {
+            traversal.dispatch(v -> v.visitFileFailed(start, e));
+            return;
+        }
+        if (ordered) {
+            traversal.visit(start, attrs);
+            return;
+        }
+        try {
+            pool.invoke(traversal.new Visit(start, attrs, 0, null));
+        } catch (final UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private static BasicFileAttributes readAttributes(final Path file) throws IOException {
+        return Files.readAttributes(file, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+    }
+
+    private static Listing list(final Path dir) {
+        final List<Entry> entries = new ArrayList<>();
+        try (final DirectoryStream<Path> stream = Files.newDirectoryStream(dir)) {
+            for (final Path entry : stream) {
+                try {
+                    entries.add(new Entry(entry, readAttributes(entry), null));
+                } catch (final IOException e) {
+                    entries.add(new Entry(entry, null, e));
+                }
+            }
+        } catch (final DirectoryIteratorException e) {
+            return new Listing(null, entries, e.getCause());
+        } catch (final IOException e) {
+            return new Listing(e, List.of(), null);
+        }
+        return new Listing(null, entries, null);
+    }
+
+    @FunctionalInterface
+    private interface Event {
+
+        FileVisitResult apply(FileVisitor<? super Path> visitor) throws IOException;
+    }
+
+    // A directory that could not be opened has only the failure, one that failed while being
+    // read has the entries read before the iteration failure
+    private record Listing(
+            IOException failure,
+            List<Entry> entries,
+            IOException iterationFailure
+    ) {}
+
+    private record Entry(Path path, BasicFileAttributes attrs, IOException failure) {}
+
+    private record Prefetch(int index, ForkJoinTask<Listing> listing) {}
+
+    private final class Traversal {
+
+        private final FileVisitor<? super Path> visitor;
+        private final int maxDepth;
+        private volatile boolean terminated;
+
+        Traversal(final FileVisitor<? super Path> visitor, final int maxDepth) {
+            this.visitor = visitor;
+            this.maxDepth = maxDepth;
+        }
+
+        FileVisitResult dispatch(final Event event) throws IOException {
+            synchronized (this) {
+                if (terminated) {
+                    return FileVisitResult.TERMINATE;
+                }
+                final FileVisitResult result = event.apply(visitor);
+                if (result == FileVisitResult.TERMINATE) {
+                    terminated = true;
+                }
+                return result;
+            }
+        }
+
+        boolean isSubtree(final BasicFileAttributes attrs, final int depth) {
+            return depth < maxDepth && attrs.isDirectory();
+        }
+
+        void visit(final Path start, final BasicFileAttributes attrs) throws IOException {
+            if (isSubtree(attrs, 0)) {
+                visitDirectory(start, attrs, 0, null);
+            } else {
+                dispatch(v -> v.visitFile(start, attrs));
+            }
+        }
+
+        // Only directories the visitor is known to enter are listed ahead of preVisitDirectory
+        private boolean prefetches(final Path dir) {
+            return visitor instanceof final FileTreeTraverser.DirectoryFilter filter
+                    && filter.entersDirectory(dir);
+        }
+
+        // Returns what the directory's own entry means for its siblings, as Files.walkFileTree
+        // does: SKIP_SIBLINGS from preVisitDirectory or visitFileFailed skips them, while
+        // SKIP_SIBLINGS and SKIP_SUBTREE from postVisitDirectory do nothing
+        private FileVisitResult visitDirectory(
+                final Path dir,
+                final BasicFileAttributes attrs,
+                final int depth,
+                final ForkJoinTask<Listing> listing
+        ) throws IOException {
+            final FileVisitResult pre = dispatch(v -> v.preVisitDirectory(dir, attrs));
+            if (pre != FileVisitResult.CONTINUE) {
+                if (listing != null) {
+                    listing.cancel(false);
+                }
+                return pre;
+            }
+            final Listing listed = listing == null ? list(dir) : listing.join();
+            if (listed.failure() != null) {
+                return dispatch(v -> v.visitFileFailed(dir, listed.failure()));
+            }
+            final List<Entry> entries = listed.entries();
+            final Queue<Prefetch> prefetched = new ArrayDeque<>();
+            int scanned = 0;
+            try {
+                for (int i = 0; i < entries.size(); i++) {
+                    // Keeps the listings of the next entered subdirectories in flight, in order
+                    for (; scanned < entries.size() && prefetched.size() < prefetch; scanned++) {
+                        final Entry next = entries.get(scanned);
+                        if (next.attrs() != null && isSubtree(next.attrs(), depth + 1)
+                                && prefetches(next.path())) {
+                            prefetched.add(new Prefetch(
+                                    scanned,
+                                    pool.submit(() -> list(next.path()))
+                            ));
+                        }
+                    }
+                    final Entry entry = entries.get(i);
+                    final FileVisitResult result;
+                    if (entry.failure() != null) {
+                        result = dispatch(v -> v.visitFileFailed(entry.path(), entry.failure()));
+                    } else if (isSubtree(entry.attrs(), depth + 1)) {
+                        final boolean ahead = !prefetched.isEmpty()
+                                && prefetched.peek().index() == i;
+                        result = visitDirectory(
+                                entry.path(),
+                                entry.attrs(),
+                                depth + 1,
+                                ahead ? prefetched.remove().listing() : null
+                        );
+                    } else {
+                        result = dispatch(v -> v.visitFile(entry.path(), entry.attrs()));
+                    }
+                    if (result == FileVisitResult.TERMINATE) {
+                        return result;
+                    }
+                    if (result == FileVisitResult.SKIP_SIBLINGS) {
+                        break;
+                    }
+                }
+            } finally {
+                prefetched.forEach(task -> task.listing().cancel(false));
+            }
+            final FileVisitResult post = dispatch(
+                    v -> v.postVisitDirectory(dir, listed.iterationFailure())
+            );
+            return post == FileVisitResult.TERMINATE ? post : FileVisitResult.CONTINUE;
+        }
+
+        // Tasks are never serialized
+        @SuppressWarnings("serial")
+        private final class Visit extends RecursiveAction {
+
+            private final Path file;
+            private final BasicFileAttributes attrs;
+            private final int depth;
+            private final Visit parent;
+            private volatile boolean skipSiblings;
+
+            Visit(
+                    final Path file,
+                    final BasicFileAttributes attrs,
+                    final int depth,
+                    final Visit parent
+            ) {
+                this.file = file;
+                this.attrs = attrs;
+                this.depth = depth;
+                this.parent = parent;
+            }
+
+            @Override
+            protected void compute() {
+                try {
+                    if (isSubtree(attrs, depth)) {
+                        visitDirectory();
+                    } else {
+                        dispatch(v -> v.visitFile(file, attrs));
+                    }
+                } catch (final IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+
+            private void visitDirectory() throws IOException {
+                final FileVisitResult pre = dispatch(v -> v.preVisitDirectory(file, attrs));
+                if (pre != FileVisitResult.CONTINUE) {
+                    skipParent(pre);
+                    return;
+                }
+                final List<Visit> children = new ArrayList<>();
+                IOException failure = null;
+                try (final DirectoryStream<Path> stream = Files.newDirectoryStream(file)) {
+                    for (final Path entry : stream) {
+                        if (terminated || skipSiblings) {
+                            break;
+                        }
+                        visitEntry(entry, children);
+                    }
+                } catch (final DirectoryIteratorException e) {
+                    failure = e.getCause();
+                } catch (final IOException e) {
+                    skipParent(dispatch(v -> v.visitFileFailed(file, e)));
+                    return;
+                }
+                children.forEach(ForkJoinTask::join);
+                final IOException exc = failure;
+                dispatch(v -> v.postVisitDirectory(file, exc));
+            }
+
+            private void visitEntry(final Path entry, final List<Visit> children)
+                    throws IOException {
+                final BasicFileAttributes entryAttrs;
+                try {
+                    entryAttrs = readAttributes(entry);
+                } catch (final IOException e) {
+                    skip(dispatch(v -> v.visitFileFailed(entry, e)));
+                    return;
+                }
+                if (isSubtree(entryAttrs, depth + 1)) {
+                    final Visit child = new Visit(entry, entryAttrs, depth + 1, this);
+                    child.fork();
+                    children.add(child);
+                } else {
+                    skip(dispatch(v -> v.visitFile(entry, entryAttrs)));
+                }
+            }
+
+            private void skip(final FileVisitResult result) {
+                if (result == FileVisitResult.SKIP_SIBLINGS) {
+                    skipSiblings = true;
+                }
+            }
+
+            private void skipParent(final FileVisitResult result) {
+                if (parent != null) {
+                    parent.skip(result);
+                }
+            }
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,69 @@
+package info.kgeorgiy.ja.koloskov.walk;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.NoSuchAlgorithmException;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+// Thread-safe hasher lending a separate delegate to every concurrent call. Delegates are created
+// on demand and kept for reuse, so there are never more of them than calls at once
+public class PooledFileHasher implements FileHasher {
+
+    private final HashPipeline.HasherFactory factory;
+    private final Queue<FileHasher> idle = new ConcurrentLinkedQueue<>();
+    private final int hashLength;
+    private final String nullHash;
+
+    public PooledFileHasher(final HashPipeline.HasherFactory factory)
+            throws NoSuchAlgorithmException {
+        this.factory = factory;
+        final FileHasher first = factory.create();
+        this.hashLength = first.getHashLength();
+        this.nullHash = first.getNullHash();
+        idle.add(first);
+    }
+
+    @Override
+    public String getHash(final Path file) throws IOException {
+        final FileHasher hasher = borrow();
+        try {
+            return hasher.getHash(file);
+        } finally {
+            idle.add(hasher);
+        }
+    }
+
+    @Override
+    public String getHash(final Path file, final BasicFileAttributes attrs) throws IOException {
+        final FileHasher hasher = borrow();
+        try {
+            return hasher.getHash(file, attrs);
+        } finally {
+            idle.add(hasher);
+        }
+    }
+
+    private FileHasher borrow() {
+        final FileHasher hasher = idle.poll();
+        if (hasher != null) {
+            return hasher;
+        }
+        try {
+            return factory.create();
+        } catch (final NoSuchAlgorithmException e) {
+            throw new IllegalStateException("Hasher became unavailable: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public int getHashLength() {
+        return hashLength;
+    }
+
+    @Override
+    public String getNullHash() {
+        return nullHash;
+    }
+}
\ No newline at end of file
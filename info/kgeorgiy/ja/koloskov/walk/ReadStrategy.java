@@ -0,0 +1,42 @@
+package info.kgeorgiy.ja.koloskov.walk;
+
+import java.nio.ByteBuffer;
+
+public record ReadStrategy(boolean direct, int bufferSize, long mapThreshold, int mapWindow) {
+
+    public static final ReadStrategy DEFAULT =
+            new ReadStrategy(false, 8192, Long.MAX_VALUE, 1 << 26);
+
+    public ReadStrategy {
+        if (bufferSize <= 0 || mapWindow <= 0) {
+            throw new IllegalArgumentException("Buffer and window sizes must be positive");
+        }
+        if (mapThreshold < 0) {
+            throw new IllegalArgumentException("Map threshold must not be negative");
+        }
+    }
+
+    public ReadStrategy withDirect(final boolean direct) {
+        return new ReadStrategy(direct, bufferSize, mapThreshold, mapWindow);
+    }
+
+    public ReadStrategy withBufferSize(final int bufferSize) {
+        return new ReadStrategy(direct, bufferSize, mapThreshold, mapWindow);
+    }
+
+    public ReadStrategy withMapThreshold(final long mapThreshold) {
+        return new ReadStrategy(direct, bufferSize, mapThreshold, mapWindow);
+    }
+
+    public ReadStrategy withMapWindow(final int mapWindow) {
+        return new ReadStrategy(direct, bufferSize, mapThreshold, mapWindow);
+    }
+
+    public ByteBuffer allocate() {
+        return direct ? ByteBuffer.allocateDirect(bufferSize) : ByteBuffer.allocate(bufferSize);
+    }
+
+    public boolean shouldMap(final long size) {
+        return size >= mapThreshold;
+    }
+}
\ No newline at end of file
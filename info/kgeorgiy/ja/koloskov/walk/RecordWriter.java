@@ -0,0 +1,11 @@
+package info.kgeorgiy.ja.koloskov.walk;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+public interface RecordWriter extends Closeable {
+
+    void write(String fileName, String hash);
+
+    void flush() throws IOException;
+}
\ No newline at end of file
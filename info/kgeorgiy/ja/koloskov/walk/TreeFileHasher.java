@@ -0,0 +1,173 @@
+package info.kgeorgiy.ja.koloskov.walk;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+// Leaves are H(0x00 || chunk), inner nodes H(0x01 || left || right), and a
+// range of n leaves is split at the largest power of two below n
+public class TreeFileHasher implements FileHasher {
+
+    private static final Logger logger = Logger.getLogger(TreeFileHasher.class.getName());
+    private static final byte LEAF = 0;
+    private static final byte NODE = 1;
+    private static final int READ_BUFFER_SIZE = 1 << 16;
+
+    private final String algorithm;
+    private final int hashLength;
+    private final long chunkSize;
+    private final ForkJoinPool pool;
+    private final String prefix;
+    private final ThreadLocal<MessageDigest> digests;
+    private final ThreadLocal<ByteBuffer> buffers =
+            ThreadLocal.withInitial(() -> ByteBuffer.allocateDirect(READ_BUFFER_SIZE));
+    private WalkMetrics metrics;
+
+    public TreeFileHasher(
+            final String algorithm,
+            final int hashLength,
+            final long chunkSize,
+            final ForkJoinPool pool
+    ) throws NoSuchAlgorithmException {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("Chunk size must be positive");
+        }
+        final int digestLength = MessageDigest.getInstance(algorithm).getDigestLength();
+        this.algorithm = algorithm;
+        this.hashLength = hashLength < 0 ? digestLength : hashLength;
+        this.chunkSize = chunkSize;
+        this.pool = pool;
+        this.prefix = "tree:" + chunkSize + ":";
+        this.digests = ThreadLocal.withInitial(this::newDigest);
+    }
+
+    public TreeFileHasher metrics(final WalkMetrics metrics) {
+        this.metrics = metrics;
+        return this;
+    }
+
+    @Override
+    public String getHash(final Path filePath) throws IOException {
+        try (final FileChannel channel = FileChannel.open(filePath, StandardOpenOption.READ)) {
+            final long size = channel.size();
+            final long leaves = Math.max(1, (size + chunkSize - 1) / chunkSize);
+            final byte[] root = pool.invoke(new Subtree(channel, size, 0, leaves));
+            return format(hashLength == root.length ? root : Arrays.copyOf(root, hashLength));
+        } catch (final UncheckedIOException e) {
+            logger.log(Level.WARNING, "Error reading file: " + filePath + ": " + e.getMessage());
+            throw e.getCause();
+        } catch (final IOException e) {
+            logger.log(Level.WARNING, "Error reading file: " + filePath + ": " + e.getMessage());
+            throw e;
+        }
+    }
+
+    private byte[] hashLeaf(final FileChannel channel, final long from, final long to)
+            throws IOException {
+        final MessageDigest digest = digests.get();
+        final ByteBuffer buffer = buffers.get();
+        // A read that failed earlier on this thread may have left the digest mid-leaf
+        digest.reset();
+        digest.update(LEAF);
+        long position = from;
+        while (position < to) {
+            buffer.clear().limit((int) Math.min(buffer.capacity(), to - position));
+            final int read = channel.read(buffer, position);
+            if (read < 0) {
+                break;
+            }
+            buffer.flip();
+            digest.update(buffer);
+            position += read;
+        }
+        if (metrics != null) {
+            metrics.bytesRead(position - from);
+        }
+        return digest.digest();
+    }
+
+    private byte[] hashNode(final byte[] left, final byte[] right) {
+        final MessageDigest digest = digests.get();
+        digest.reset();
+        digest.update(NODE);
+        digest.update(left);
+        digest.update(right);
+        return digest.digest();
+    }
+
+    private MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance(algorithm);
+        } catch (final NoSuchAlgorithmException e) {
+            throw new IllegalStateException("Algorithm disappeared: " + algorithm, e);
+        }
+    }
+
+    private String format(final byte[] hash) {
+        return prefix + HexFormat.of().formatHex(hash);
+    }
+
+    @Override
+    public int getHashLength() {
+        return hashLength;
+    }
+
+    @Override
+    public String getNullHash() {
+        return format(new byte[hashLength]);
+    }
+
+    // Tasks are never serialized. Not static, as leaves and nodes use this hasher's digests
+    @SuppressWarnings("serial")
+    private class Subtree extends RecursiveTask<byte[]> {
+
+        private final FileChannel channel;
+        private final long size;
+        private final long fromLeaf;
+        private final long toLeaf;
+
+        Subtree(
+                final FileChannel channel,
+                final long size,
+                final long fromLeaf,
+                final long toLeaf
+        ) {
+            this.channel = channel;
+            this.size = size;
+            this.fromLeaf = fromLeaf;
+            this.toLeaf = toLeaf;
+        }
+
+        @Override
+        protected byte[] compute() {
+            final long leaves = toLeaf - fromLeaf;
+            if (leaves == 1) {
+                try {
+                    return hashLeaf(
+                            channel,
+                            fromLeaf * chunkSize,
+                            Math.min(size, (fromLeaf + 1) * chunkSize)
+                    );
+                } catch (final IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+            final long split = fromLeaf + Long.highestOneBit(leaves - 1);
+            final Subtree right = new Subtree(channel, size, split, toLeaf);
+            right.fork();
+            final byte[] left = new Subtree(channel, size, fromLeaf, split).compute();
+            return hashNode(left, right.join());
+        }
+    }
+}
\ No newline at end of file
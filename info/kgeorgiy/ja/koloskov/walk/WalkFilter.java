@@ -0,0 +1,116 @@
+package info.kgeorgiy.ja.koloskov.walk;
+
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+
+// Globs without a separator match the file name, the others match the whole path
+public final class WalkFilter {
+
+    public static final WalkFilter ALL = new WalkFilter(List.of(), List.of(), 0, Long.MAX_VALUE);
+
+    private final List<String> includes;
+    private final List<String> excludes;
+    private final long minSize;
+    private final long maxSize;
+    private final List<Glob> includeMatchers;
+    private final List<Glob> excludeMatchers;
+
+    private WalkFilter(
+            final List<String> includes,
+            final List<String> excludes,
+            final long minSize,
+            final long maxSize
+    ) {
+        if (minSize < 0 || maxSize < 0) {
+            throw new IllegalArgumentException("Size limits must not be negative");
+        }
+        if (minSize > maxSize) {
+            throw new IllegalArgumentException(
+                    "Minimum size " + minSize + " exceeds maximum size " + maxSize
+            );
+        }
+        this.includes = List.copyOf(includes);
+        this.excludes = List.copyOf(excludes);
+        this.minSize = minSize;
+        this.maxSize = maxSize;
+        this.includeMatchers = this.includes.stream().map(Glob::new).toList();
+        this.excludeMatchers = this.excludes.stream().map(Glob::new).toList();
+    }
+
+    public WalkFilter withInclude(final String glob) {
+        return new WalkFilter(append(includes, glob), excludes, minSize, maxSize);
+    }
+
+    public WalkFilter withExclude(final String glob) {
+        return new WalkFilter(includes, append(excludes, glob), minSize, maxSize);
+    }
+
+    public WalkFilter withMinSize(final long minSize) {
+        return new WalkFilter(includes, excludes, minSize, maxSize);
+    }
+
+    public WalkFilter withMaxSize(final long maxSize) {
+        return new WalkFilter(includes, excludes, minSize, maxSize);
+    }
+
+    public boolean isAll() {
+        return includes.isEmpty() && excludes.isEmpty()
+                && minSize == 0 && maxSize == Long.MAX_VALUE;
+    }
+
+    // Includes select files only, so directories are pruned by excludes alone
+    public boolean acceptsDirectory(final Path dir) {
+        return !matchesAny(excludeMatchers, dir);
+    }
+
+    public boolean acceptsPath(final Path file) {
+        return !matchesAny(excludeMatchers, file)
+                && (includeMatchers.isEmpty() || matchesAny(includeMatchers, file));
+    }
+
+    public boolean acceptsFile(final Path file, final BasicFileAttributes attrs) {
+        if (!attrs.isDirectory() && (attrs.size() < minSize || attrs.size() > maxSize)) {
+            return false;
+        }
+        return acceptsPath(file);
+    }
+
+    private static boolean matchesAny(final List<Glob> globs, final Path path) {
+        for (final Glob glob : globs) {
+            if (glob.matches(path)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static List<String> append(final List<String> list, final String element) {
+        final List<String> result = new ArrayList<>(list);
+        result.add(element);
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return "include=" + includes + ",exclude=" + excludes + ",size=" + minSize + ".." + maxSize;
+    }
+
+    private record Glob(PathMatcher matcher, boolean wholePath) {
+
+        private Glob(final String pattern) {
+            this(FileSystems.getDefault().getPathMatcher("glob:" + pattern), pattern.contains("/"));
+        }
+
+        private boolean matches(final Path path) {
+            if (wholePath) {
+                return matcher.matches(path);
+            }
+            final Path name = path.getFileName();
+            return name != null && matcher.matches(name);
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,209 @@
+package info.kgeorgiy.ja.koloskov.walk;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+// Bucket i of the latency histogram counts hashes that took [2^(i-1), 2^i) microseconds
+public class WalkMetrics implements WalkMetricsMXBean {
+
+    private static final Logger logger = Logger.getLogger(WalkMetrics.class.getName());
+    private static final String OBJECT_NAME =
+            "info.kgeorgiy.ja.koloskov.walk:type=WalkMetrics,name=walk-";
+    private static final AtomicLong INSTANCES = new AtomicLong();
+    private static final int BUCKETS = Long.SIZE;
+
+    private final long started = System.nanoTime();
+    private final LongAdder files = new LongAdder();
+    private final LongAdder bytes = new LongAdder();
+    private final LongAdder hashErrors = new LongAdder();
+    private final LongAdder accessErrors = new LongAdder();
+    private final LongAdder traversalNanos = new LongAdder();
+    private final LongAdder submitNanos = new LongAdder();
+    private final LongAdder readNanos = new LongAdder();
+    private final LongAdder digestNanos = new LongAdder();
+    private final LongAdder writeNanos = new LongAdder();
+    private final AtomicLongArray latency = new AtomicLongArray(BUCKETS);
+    private ObjectName registered;
+
+    // Cache and memo hits read nothing, so bytes are counted by the readers, not per file
+    public void fileHashed(final long nanos) {
+        files.increment();
+        latency.incrementAndGet(bucket(TimeUnit.NANOSECONDS.toMicros(nanos)));
+    }
+
+    public void bytesRead(final long count) {
+        bytes.add(count);
+    }
+
+    public void hashFailed() {
+        hashErrors.increment();
+    }
+
+    public void accessFailed() {
+        accessErrors.increment();
+    }
+
+    public void traversed(final long nanos) {
+        traversalNanos.add(nanos);
+    }
+
+    public void submitted(final long nanos) {
+        submitNanos.add(nanos);
+    }
+
+    public void read(final long nanos) {
+        readNanos.add(nanos);
+    }
+
+    public void digested(final long nanos) {
+        digestNanos.add(nanos);
+    }
+
+    public void written(final long nanos) {
+        writeNanos.add(nanos);
+    }
+
+    private static int bucket(final long micros) {
+        return Long.SIZE - Long.numberOfLeadingZeros(micros);
+    }
+
+    @Override
+    public long getFiles() {
+        return files.sum();
+    }
+
+    @Override
+    public long getBytes() {
+        return bytes.sum();
+    }
+
+    @Override
+    public long getHashErrors() {
+        return hashErrors.sum();
+    }
+
+    @Override
+    public long getAccessErrors() {
+        return accessErrors.sum();
+    }
+
+    @Override
+    public double getFilesPerSecond() {
+        return getFiles() / elapsedSeconds();
+    }
+
+    @Override
+    public double getBytesPerSecond() {
+        return getBytes() / elapsedSeconds();
+    }
+
+    private double elapsedSeconds() {
+        return Math.max(1, System.nanoTime() - started) / 1e9;
+    }
+
+    // Time spent walking trees, excluding time blocked on handing files to the pipeline
+    @Override
+    public long getTraversalMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(Math.max(0, traversalNanos.sum() - submitNanos.sum()));
+    }
+
+    @Override
+    public long getReadMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(readNanos.sum());
+    }
+
+    @Override
+    public long getDigestMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(digestNanos.sum());
+    }
+
+    @Override
+    public long getWriteMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(writeNanos.sum());
+    }
+
+    @Override
+    public long[] getLatencyHistogram() {
+        final long[] histogram = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) {
+            histogram[i] = latency.get(i);
+        }
+        return histogram;
+    }
+
+    // Upper bound of the bucket containing the requested percentile
+    @Override
+    public long getLatencyPercentileMicros(final double percentile) {
+        final long[] histogram = getLatencyHistogram();
+        final long total = getFiles();
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += histogram[i];
+            if (seen > 0 && seen >= total * percentile / 100) {
+                return 1L << i;
+            }
+        }
+        return 0;
+    }
+
+    public String progress() {
+        return String.format(
+                "%d files, %.1f MB, %.0f files/s, %.1f MB/s, %d errors",
+                getFiles(),
+                getBytes() / 1e6,
+                getFilesPerSecond(),
+                getBytesPerSecond() / 1e6,
+                getHashErrors() + getAccessErrors()
+        );
+    }
+
+    public String summary() {
+        return String.format(
+                "%s; time ms: traversal %d, read %d, digest %d, write %d;"
+                        + " hash latency us: p50 <%d, p90 <%d, p99 <%d;"
+                        + " hash errors %d, access errors %d",
+                progress(),
+                getTraversalMillis(),
+                getReadMillis(),
+                getDigestMillis(),
+                getWriteMillis(),
+                getLatencyPercentileMicros(50),
+                getLatencyPercentileMicros(90),
+                getLatencyPercentileMicros(99),
+                getHashErrors(),
+                getAccessErrors()
+        );
+    }
+
+    public void register() {
+        final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            // Every walk in the JVM gets its own name, so concurrent walks keep their beans
+            final ObjectName name = new ObjectName(OBJECT_NAME + INSTANCES.incrementAndGet());
+            server.registerMBean(this, name);
+            registered = name;
+        } catch (final JMException e) {
+            logger.log(Level.WARNING, "Failed to register metrics MBean: {0}", e.getMessage());
+        }
+    }
+
+    public void unregister() {
+        if (registered == null) {
+            return;
+        }
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(registered);
+        } catch (final JMException e) {
+            logger.log(Level.WARNING, "Failed to unregister metrics MBean: {0}", e.getMessage());
+        }
+        registered = null;
+    }
+}
\ No newline at end of file
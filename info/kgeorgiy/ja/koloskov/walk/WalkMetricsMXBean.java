@@ -0,0 +1,28 @@
+package info.kgeorgiy.ja.koloskov.walk;
+
+public interface WalkMetricsMXBean {
+
+    long getFiles();
+
+    long getBytes();
+
+    long getHashErrors();
+
+    long getAccessErrors();
+
+    double getFilesPerSecond();
+
+    double getBytesPerSecond();
+
+    long getTraversalMillis();
+
+    long getReadMillis();
+
+    long getDigestMillis();
+
+    long getWriteMillis();
+
+    long[] getLatencyHistogram();
+
+    long getLatencyPercentileMicros(double percentile);
+}
\ No newline at end of file
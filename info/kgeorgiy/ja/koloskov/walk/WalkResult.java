@@ -0,0 +1,16 @@
+package info.kgeorgiy.ja.koloskov.walk;
+
+public record WalkResult(String path, String hash, Status status) {
+
+    public boolean isOk() {
+        return status == Status.OK;
+    }
+
+    public enum Status {
+        OK,
+        // The file was found but could not be read, hash is the null hash
+        HASH_FAILED,
+        // The file or root could not be accessed at all, hash is the null hash
+        ACCESS_FAILED
+    }
+}
\ No newline at end of file
@@ -0,0 +1,118 @@
+package info.kgeorgiy.ja.koloskov.walk;
+
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+// Hands results from a background walk to a stream consumer through a bounded queue, so the walk
+// runs at most capacity results ahead of the consumer. The walk starts with the first element
+// requested, so a stream that is never consumed holds no threads
+final class WalkStream extends Spliterators.AbstractSpliterator<WalkResult> {
+
+    private static final WalkResult END = new WalkResult(null, null, null);
+
+    private final BlockingQueue<WalkResult> results;
+    private volatile boolean cancelled;
+    private volatile RuntimeException failure;
+    private Runnable walk;
+
+    WalkStream(final int capacity) {
+        super(Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL);
+        this.results = new ArrayBlockingQueue<>(capacity);
+    }
+
+    Stream<WalkResult> stream(final Runnable walk) {
+        this.walk = walk;
+        return StreamSupport.stream(this, false).onClose(this::cancel);
+    }
+
+    private void start() {
+        final Runnable walk = this.walk;
+        this.walk = null;
+        final Thread producer = new Thread(() -> {
+            try {
+                walk.run();
+            } catch (final RuntimeException e) {
+                failure = e;
+            } finally {
+                finish();
+            }
+        }, "walk-stream");
+        producer.setDaemon(true);
+        producer.start();
+    }
+
+    // Called by the output stage of the walk
+    void accept(final WalkResult result) {
+        if (cancelled) {
+            return;
+        }
+        try {
+            results.put(result);
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            cancelled = true;
+        }
+    }
+
+    boolean isCancelled() {
+        return cancelled;
+    }
+
+    private void finish() {
+        if (cancelled) {
+            results.offer(END);
+            return;
+        }
+        boolean interrupted = false;
+        while (true) {
+            try {
+                results.put(END);
+                break;
+            } catch (final InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // The output stage checks the flag before every put, so clearing lets a blocked put finish
+    private void cancel() {
+        cancelled = true;
+        results.clear();
+    }
+
+    @Override
+    public boolean tryAdvance(final Consumer<? super WalkResult> action) {
+        if (walk != null) {
+            if (cancelled) {
+                return false;
+            }
+            start();
+        }
+        final WalkResult result;
+        try {
+            result = results.take();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            cancel();
+            throw new CancellationException("Interrupted while waiting for walk results");
+        }
+        if (result == END) {
+            results.offer(END);
+            if (failure != null) {
+                throw failure;
+            }
+            return false;
+        }
+        action.accept(result);
+        return true;
+    }
+}
\ No newline at end of file
@@ -1,19 +1,26 @@
 package info.kgeorgiy.ja.koloskov.walk;
 
-import java.io.BufferedReader;
-import java.io.BufferedWriter;
+import info.kgeorgiy.ja.koloskov.walk.CheckpointJournal.Checkpoint;
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
 import java.nio.charset.StandardCharsets;
-import java.nio.file.FileVisitOption;
-import java.nio.file.FileVisitor;
+import java.nio.file.FileVisitResult;
 import java.nio.file.Files;
 import java.nio.file.InvalidPathException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.security.NoSuchAlgorithmException;
-import java.util.EnumSet;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Objects;
-import java.util.function.Consumer;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ObjLongConsumer;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.stream.Stream;
@@ -21,7 +28,25 @@ import java.util.stream.Stream;
 public class Walker {
 
     private static final Logger logger = Logger.getLogger(Walker.class.getName());
+    private static final String OPTION_PREFIX = "--";
+    private static final int STREAM_CAPACITY = 256;
     private final int maxDepth;
+    private int threads = 1;
+    private int virtualThreads;
+    private ReadStrategy readStrategy = ReadStrategy.DEFAULT;
+    private WalkFilter filter = WalkFilter.ALL;
+    private Path cacheFile;
+    private int memoCapacity = 1 << 16;
+    private boolean asyncOutput;
+    private OutputFormat outputFormat = OutputFormat.TEXT;
+    private long treeChunkSize;
+    private int traversalThreads = 1;
+    private boolean orderedTraversal = true;
+    private Path journalFile;
+    private Path diffManifest;
+    private long checkpointInterval = 10_000;
+    private boolean metricsEnabled;
+    private long progressInterval;
 
     public Walker() {
         this(Integer.MAX_VALUE);
@@ -31,7 +56,120 @@ public class Walker {
         this.maxDepth = maxDepth;
     }
 
-    public void walk(final String[] args) {
+    public Walker threads(final int threads) {
+        if (threads <= 0) {
+            throw new IllegalArgumentException("Number of threads must be positive");
+        }
+        this.threads = threads;
+        return this;
+    }
+
+    // Hashes every file on its own virtual thread with at most maxOpenFiles files open at once,
+    // 0 switches back to the platform thread pool
+    public Walker virtualThreads(final int maxOpenFiles) {
+        if (maxOpenFiles < 0) {
+            throw new IllegalArgumentException("Number of open files must not be negative");
+        }
+        this.virtualThreads = maxOpenFiles;
+        return this;
+    }
+
+    public Walker readStrategy(final ReadStrategy readStrategy) {
+        this.readStrategy = Objects.requireNonNull(readStrategy);
+        return this;
+    }
+
+    public Walker filter(final WalkFilter filter) {
+        this.filter = Objects.requireNonNull(filter);
+        return this;
+    }
+
+    public Walker include(final String glob) {
+        return filter(filter.withInclude(glob));
+    }
+
+    public Walker exclude(final String glob) {
+        return filter(filter.withExclude(glob));
+    }
+
+    public Walker cacheFile(final Path cacheFile) {
+        this.cacheFile = cacheFile;
+        return this;
+    }
+
+    public Walker memoCapacity(final int memoCapacity) {
+        if (memoCapacity < 0) {
+            throw new IllegalArgumentException("Memo capacity must not be negative");
+        }
+        this.memoCapacity = memoCapacity;
+        return this;
+    }
+
+    public Walker asyncOutput(final boolean asyncOutput) {
+        this.asyncOutput = asyncOutput;
+        return this;
+    }
+
+    public Walker outputFormat(final OutputFormat outputFormat) {
+        this.outputFormat = Objects.requireNonNull(outputFormat);
+        return this;
+    }
+
+    public Walker treeChunkSize(final long treeChunkSize) {
+        if (treeChunkSize < 0) {
+            throw new IllegalArgumentException("Tree chunk size must not be negative");
+        }
+        this.treeChunkSize = treeChunkSize;
+        return this;
+    }
+
+    public Walker traversalThreads(final int traversalThreads) {
+        if (traversalThreads <= 0) {
+            throw new IllegalArgumentException("Number of traversal threads must be positive");
+        }
+        this.traversalThreads = traversalThreads;
+        return this;
+    }
+
+    public Walker orderedTraversal(final boolean orderedTraversal) {
+        this.orderedTraversal = orderedTraversal;
+        return this;
+    }
+
+    public Walker journalFile(final Path journalFile) {
+        this.journalFile = journalFile;
+        return this;
+    }
+
+    public Walker checkpointInterval(final long checkpointInterval) {
+        if (checkpointInterval < 0) {
+            throw new IllegalArgumentException("Checkpoint interval must not be negative");
+        }
+        this.checkpointInterval = checkpointInterval;
+        return this;
+    }
+
+    // Writes only entries added, removed or changed since the given previous output
+    public Walker diffAgainst(final Path diffManifest) {
+        this.diffManifest = diffManifest;
+        return this;
+    }
+
+    public Walker metrics(final boolean metricsEnabled) {
+        this.metricsEnabled = metricsEnabled;
+        return this;
+    }
+
+    public Walker progressInterval(final long progressInterval) {
+        if (progressInterval < 0) {
+            throw new IllegalArgumentException("Progress interval must not be negative");
+        }
+        this.progressInterval = progressInterval;
+        return this;
+    }
+
+    public void walk(final String[] arguments) {
+        final String[] args = parseOptions(arguments);
         if (!validateArgs(args)) {
             return;
         }
@@ -44,10 +182,173 @@ public class Walker {
             return;
         }
 
-        final String hashAlgorithm = args.length == 3 ? args[2].toUpperCase() : "SHA-256";
-        final int hashLength = hashAlgorithm.equals("SHA-256") ? 8 : -1;
+        final List<String> hashAlgorithms = List.of(
+                (args.length == 3 ? args[2].toUpperCase() : "SHA-256").split(",")
+        );
+        if (treeChunkSize > 0 && hashAlgorithms.size() > 1) {
+            logger.log(Level.SEVERE, "Tree mode supports a single hashing algorithm");
+            return;
+        }
+        if (diffManifest != null && journalFile != null) {
+            logger.log(Level.SEVERE, "Diff mode cannot be resumed from a journal");
+            return;
+        }
+        if (diffManifest != null && outputFormat != OutputFormat.TEXT) {
+            logger.log(Level.SEVERE, "Diff mode writes text output only");
+            return;
+        }
+        if (asyncOutput && outputFormat != OutputFormat.TEXT) {
+            logger.log(Level.SEVERE, "Asynchronous output writes text output only");
+            return;
+        }
+
+        run(inputPath, outputPath, hashAlgorithms);
+    }
 
-        run(inputPath, outputPath, hashAlgorithm, hashLength);
+    // Walks the roots on a background thread using this walker's settings. The walk starts with the
+    // first element requested and results arrive in walk order while it runs; closing the stream
+    // stops the walk. Its threads are daemons, so an abandoned stream does not keep the JVM alive
+    public Stream<WalkResult> stream(
+            final Iterable<Path> roots,
+            final HashPipeline.HasherFactory hashers
+    ) throws NoSuchAlgorithmException {
+        final int workers = virtualThreads > 0 ? virtualThreads : threads;
+        return stream(roots, hashers, workers);
+    }
+
+    // A single hasher cannot be shared, so one file is hashed at a time: on the walking thread,
+    // or with virtual threads on one of them at a time
+    public Stream<WalkResult> stream(final Iterable<Path> roots, final FileHasher hasher) {
+        try {
+            return stream(roots, () -> hasher, 1);
+        } catch (final NoSuchAlgorithmException e) {
+            throw new AssertionError("Hasher is already created", e);
+        }
+    }
+
+    private Stream<WalkResult> stream(
+            final Iterable<Path> roots,
+            final HashPipeline.HasherFactory hashers,
+            final int workers
+    ) throws NoSuchAlgorithmException {
+        // Fails fast on an unknown algorithm, the pipeline itself is created by the walk
+        hashers.create();
+        final WalkStream stream = new WalkStream(STREAM_CAPACITY);
+        return stream.stream(() -> {
+            final HashPipeline pipeline;
+            try {
+                pipeline = new HashPipeline(
+                        hashers,
+                        workers,
+                        virtualThreads > 0,
+                        true,
+                        stream::accept,
+                        null
+                );
+            } catch (final NoSuchAlgorithmException e) {
+                throw new IllegalStateException("Hashing algorithm disappeared", e);
+            }
+            final ForkJoinPool traversalPool = traversalThreads == 1 ? null
+                    : new ForkJoinPool(traversalThreads);
+            final FileTreeTraverser traverser = traversalPool == null ? FileTreeTraverser.SEQUENTIAL
+                    : new ParallelFileTreeTraverser(traversalPool, orderedTraversal);
+            final var visitor = new HashFileVisitor(pipeline, filter) {
+                @Override
+                public FileVisitResult preVisitDirectory(
+                        final Path dir,
+                        final BasicFileAttributes attrs
+                ) {
+                    return stream.isCancelled()
+                            ? FileVisitResult.TERMINATE
+                            : super.preVisitDirectory(dir, attrs);
+                }
+
+                @Override
+                public FileVisitResult visitFile(final Path file, final BasicFileAttributes attrs) {
+                    return stream.isCancelled()
+                            ? FileVisitResult.TERMINATE
+                            : super.visitFile(file, attrs);
+                }
+            };
+            try (pipeline) {
+                for (final Path root : roots) {
+                    if (stream.isCancelled()) {
+                        break;
+                    }
+                    final String name = root.toString();
+                    processFile(name, traverser, visitor, () -> pipeline.submitNull(name));
+                }
+            } finally {
+                if (traversalPool != null) {
+                    traversalPool.shutdown();
+                }
+            }
+        });
+    }
+
+    private String[] parseOptions(final String[] args) {
+        if (args == null || Stream.of(args).anyMatch(Objects::isNull)) {
+            return args;
+        }
+        final List<String> positional = new ArrayList<>();
+        for (final String arg : args) {
+            if (!arg.startsWith(OPTION_PREFIX)) {
+                positional.add(arg);
+            } else if (!applyOption(arg.substring(OPTION_PREFIX.length()))) {
+                return null;
+            }
+        }
+        return positional.toArray(String[]::new);
+    }
+
+    private boolean applyOption(final String option) {
+        final int separator = option.indexOf('=');
+        final String name = separator < 0 ? option : option.substring(0, separator);
+        final String value = separator < 0 ? "" : option.substring(separator + 1);
+        try {
+            switch (name) {
+                case "threads" -> threads(Integer.parseInt(value));
+                case "virtual-threads" -> virtualThreads(Integer.parseInt(value));
+                case "direct" -> readStrategy(readStrategy.withDirect(flag(value)));
+                case "buffer-size" -> readStrategy(readStrategy.withBufferSize(
+                        Integer.parseInt(value)
+                ));
+                case "map-threshold" -> readStrategy(readStrategy.withMapThreshold(
+                        Long.parseLong(value)
+                ));
+                case "map-window" -> readStrategy(readStrategy.withMapWindow(
+                        Integer.parseInt(value)
+                ));
+                case "include" -> include(value);
+                case "exclude" -> exclude(value);
+                case "min-size" -> filter(filter.withMinSize(Long.parseLong(value)));
+                case "max-size" -> filter(filter.withMaxSize(Long.parseLong(value)));
+                case "cache" -> cacheFile(Paths.get(value));
+                case "memo" -> memoCapacity(Integer.parseInt(value));
+                case "async-output" -> asyncOutput(flag(value));
+                case "format" -> outputFormat(OutputFormat.valueOf(value.toUpperCase()));
+                case "tree-chunk" -> treeChunkSize(Long.parseLong(value));
+                case "traversal-threads" -> traversalThreads(Integer.parseInt(value));
+                case "unordered" -> orderedTraversal(!flag(value));
+                case "journal" -> journalFile(Paths.get(value));
+                case "checkpoint-interval" -> checkpointInterval(Long.parseLong(value));
+                case "diff" -> diffAgainst(Paths.get(value));
+                case "metrics" -> metrics(flag(value));
+                case "progress" -> progressInterval(Long.parseLong(value));
+                default -> {
+                    logger.log(Level.SEVERE, "Unknown option: {0}", name);
+                    return false;
+                }
+            }
+        } catch (final IllegalArgumentException e) {
+            logger.log(Level.SEVERE, "Invalid value of option " + name + ": " + e.getMessage());
+            return false;
+        }
+        return true;
+    }
+
+    private static boolean flag(final String value) {
+        return value.isEmpty() || Boolean.parseBoolean(value);
     }
 
     private static boolean validateArgs(final String[] args) {
@@ -57,7 +358,11 @@ public class Walker {
         }
 
         if (args.length < 2 || args.length > 3) {
-            logger.log(Level.SEVERE, "Usage: <input file> <output file> [optional: <algorithm>]");
+            logger.log(
+                    Level.SEVERE,
+                    "Usage: [--<option>=<value>...] <input file> <output file> "
+                            + "[optional: <algorithm>]"
+            );
             return false;
         }
         return true;
@@ -95,79 +400,255 @@ public class Walker {
     private void run(
             final Path inputPath,
             final Path outputPath,
-            final String hashAlgorithm,
-            final int hashLength
+            final List<String> hashAlgorithms
     ) {
-        try (final BufferedReader reader = Files.newBufferedReader(
-                inputPath,
-                StandardCharsets.UTF_8
+        final String signature = String.join(",", hashAlgorithms)
+                + (treeChunkSize > 0 ? "/tree:" + treeChunkSize : "");
+        final String journalSignature = inputPath.toAbsolutePath()
+                + "|" + outputPath.toAbsolutePath()
+                + "|" + signature + (filter.isAll() ? "" : "|" + filter);
+        final Checkpoint start = journalFile == null ? Checkpoint.START : CheckpointJournal.read(
+                journalFile,
+                journalSignature,
+                outputPath
         );
-                final BufferedWriter writer = Files.newBufferedWriter(
-                        outputPath,
-                        StandardCharsets.UTF_8
-                )) {
-            final FileHasher hasher = new MyFileHasher(hashAlgorithm, hashLength);
-            final var visitor = new HashFileVisitor(
-                    hasher,
-                    (file, hash) -> writeRecord(
-                            writer,
-                            file.toString(),
-                            hash
-                    )
+        try (final LineScanner reader = new LineScanner(FileChannel.open(inputPath));
+                final RecordWriter writer = openWriter(outputPath, start)) {
+            final CheckpointJournal journal = journalFile == null ? null : new CheckpointJournal(
+                    journalFile,
+                    journalSignature,
+                    start,
+                    writer,
+                    outputPath,
+                    checkpointInterval,
+                    orderedTraversal || traversalThreads == 1
             );
-            processWithLines(
-                    reader,
-                    line -> processFile(
-                            line,
-                            visitor,
-                            () -> writeRecord(
-                                    writer,
-                                    line,
-                                    hasher.getNullHash()
-                            )
-                    )
+            final ManifestDiff diff = diffManifest == null ? null
+                    : ManifestDiff.load(diffManifest, hashAlgorithms.size());
+            final WalkMetrics metrics = metricsEnabled || progressInterval > 0
+                    ? new WalkMetrics() : null;
+            final ScheduledExecutorService reporter = startReporting(metrics);
+            final HashCache cache = cacheFile == null ? null : HashCache.load(cacheFile, signature);
+            final HashMemo memo = memoCapacity == 0 ? null : new HashMemo(memoCapacity);
+            final ForkJoinPool treePool = treeChunkSize == 0 ? null : new ForkJoinPool(
+                    Math.max(threads, Runtime.getRuntime().availableProcessors())
             );
+            final ForkJoinPool traversalPool = traversalThreads == 1 ? null
+                    : new ForkJoinPool(traversalThreads);
+            final FileTreeTraverser traverser = traversalPool == null ? FileTreeTraverser.SEQUENTIAL
+                    : new ParallelFileTreeTraverser(traversalPool, orderedTraversal);
+            try (final HashPipeline pipeline = new HashPipeline(
+                    () -> createHasher(hashAlgorithms, cache, memo, treePool, metrics),
+                    virtualThreads > 0 ? virtualThreads : threads,
+                    virtualThreads > 0,
+                    result -> {
+                        final String entry = diff == null ? result.hash()
+                                : diff.compare(result.path(), result.hash());
+                        if (entry == null) {
+                            return;
+                        }
+                        final long written = System.nanoTime();
+                        writer.write(result.path(), entry);
+                        if (metrics != null) {
+                            metrics.written(System.nanoTime() - written);
+                        }
+                        if (journal != null) {
+                            journal.recordWritten();
+                        }
+                    },
+                    metrics
+            )) {
+                final var visitor = new HashFileVisitor(pipeline, filter);
+                processWithLines(reader, start.line(), (line, index) -> {
+                    if (index == start.line()) {
+                        pipeline.skip(start.records());
+                    }
+                    final long traversal = System.nanoTime();
+                    processFile(line, traverser, visitor, () -> pipeline.submitNull(line));
+                    if (index == start.line()) {
+                        // The line may now yield fewer records than were written before
+                        pipeline.skip(0);
+                    }
+                    if (metrics != null) {
+                        metrics.traversed(System.nanoTime() - traversal);
+                    }
+                    if (journal != null) {
+                        pipeline.submitAction(() -> journal.lineDone(index));
+                    }
+                });
+            } finally {
+                if (treePool != null) {
+                    treePool.shutdown();
+                }
+                if (traversalPool != null) {
+                    traversalPool.shutdown();
+                }
+                stopReporting(metrics, reporter);
+            }
+            if (diff != null) {
+                diff.forEachRemoved(writer::write);
+            }
+            if (cache != null) {
+                cache.save();
+            }
+            if (journal != null) {
+                journal.complete();
+            }
         } catch (final IOException e) {
             logger.log(Level.SEVERE, "Error processing files: {0}", e.getMessage());
+        } catch (final UncheckedIOException e) {
+            logger.log(Level.SEVERE, "Error processing files: {0}", e.getCause().getMessage());
         } catch (final NoSuchAlgorithmException e) {
             logger.log(Level.SEVERE, "No such hashing algorithm: {0}", e.getMessage());
         }
     }
 
-    private static void writeRecord(
-            final BufferedWriter writer,
-            final String fileName,
-            final String hash
+    private FileHasher createHasher(
+            final List<String> hashAlgorithms,
+            final HashCache cache,
+            final HashMemo memo,
+            final ForkJoinPool treePool,
+            final WalkMetrics metrics
+    ) throws NoSuchAlgorithmException {
+        FileHasher hasher;
+        if (treePool != null) {
+            final String hashAlgorithm = hashAlgorithms.getFirst();
+            hasher = new TreeFileHasher(
+                    hashAlgorithm,
+                    hashLength(hashAlgorithm),
+                    treeChunkSize,
+                    treePool
+            ).metrics(metrics);
+        } else if (hashAlgorithms.size() == 1) {
+            hasher = createChannelHasher(hashAlgorithms.getFirst()).metrics(metrics);
+        } else {
+            final List<ChannelFileHasher> hashers = new ArrayList<>();
+            for (final String hashAlgorithm : hashAlgorithms) {
+                hashers.add(createChannelHasher(hashAlgorithm));
+            }
+            hasher = new MultiFileHasher(hashers, readStrategy).metrics(metrics);
+        }
+        if (cache != null) {
+            hasher = new CachingFileHasher(cache, hasher);
+        }
+        return memo == null ? hasher : new DedupFileHasher(memo, hasher);
+    }
+
+    private ScheduledExecutorService startReporting(final WalkMetrics metrics) {
+        if (metrics == null) {
+            return null;
+        }
+        metrics.register();
+        if (progressInterval == 0) {
+            return null;
+        }
+        final ScheduledExecutorService reporter = Executors.newSingleThreadScheduledExecutor(r -> {
+            final Thread thread = new Thread(r, "walk-progress");
+            thread.setDaemon(true);
+            return thread;
+        });
+        reporter.scheduleAtFixedRate(
+                () -> logger.log(Level.INFO, "Progress: {0}", metrics.progress()),
+                progressInterval,
+                progressInterval,
+                TimeUnit.MILLISECONDS
+        );
+        return reporter;
+    }
+
+    private static void stopReporting(
+            final WalkMetrics metrics,
+            final ScheduledExecutorService reporter
     ) {
-        try {
-            writer.write(hash + " " + fileName);
-            writer.newLine();
-        } catch (final IOException e) {
-            logger.log(Level.WARNING, "Error while writing output: {0}", e.getMessage());
+        if (reporter != null) {
+            reporter.shutdownNow();
         }
+        if (metrics != null) {
+            metrics.unregister();
+            logger.log(Level.INFO, "Summary: {0}", metrics.summary());
+        }
+    }
+
+    private RecordWriter openWriter(final Path outputPath, final Checkpoint start)
+            throws IOException {
+        final StandardOpenOption mode;
+        if (journalFile == null) {
+            mode = StandardOpenOption.TRUNCATE_EXISTING;
+        } else {
+            try (final FileChannel channel = FileChannel.open(
+                    outputPath,
+                    StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE
+            )) {
+                channel.truncate(start.offset());
+            }
+            mode = StandardOpenOption.APPEND;
+        }
+        if (outputFormat != OutputFormat.TEXT) {
+            return new BinaryRecordWriter(
+                    FileChannel.open(
+                            outputPath,
+                            StandardOpenOption.CREATE,
+                            mode,
+                            StandardOpenOption.WRITE
+                    ),
+                    outputFormat == OutputFormat.DEFLATE
+            );
+        }
+        if (asyncOutput) {
+            return new ChannelRecordWriter(FileChannel.open(
+                    outputPath,
+                    StandardOpenOption.CREATE,
+                    mode,
+                    StandardOpenOption.WRITE
+            ));
+        }
+        return new BufferedRecordWriter(Files.newBufferedWriter(
+                outputPath,
+                StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE,
+                mode,
+                StandardOpenOption.WRITE
+        ));
+    }
+
+    private ChannelFileHasher createChannelHasher(final String hashAlgorithm)
+            throws NoSuchAlgorithmException {
+        final int hashLength = hashLength(hashAlgorithm);
+        return switch (hashAlgorithm) {
+            case XxHash64FileHasher.ALGORITHM -> new XxHash64FileHasher(hashLength, readStrategy);
+            case Crc32cFileHasher.ALGORITHM -> new Crc32cFileHasher(hashLength, readStrategy);
+            default -> new MyFileHasher(hashAlgorithm, hashLength, readStrategy);
+        };
+    }
+
+    private static int hashLength(final String hashAlgorithm) {
+        return hashAlgorithm.equals("SHA-256") ? 8 : -1;
     }
 
     private static void processWithLines(
-            final BufferedReader reader,
-            final Consumer<String> consumer
+            final LineScanner reader,
+            final long firstLine,
+            final ObjLongConsumer<String> consumer
     ) throws IOException {
-        String line;
-        while ((line = reader.readLine()) != null) {
-            if (!line.trim().isEmpty()) {
-                consumer.accept(line);
+        CharSequence line;
+        for (long index = 0; (line = reader.nextLine()) != null; index++) {
+            if (index >= firstLine && !LineScanner.isBlank(line)) {
+                consumer.accept(line.toString(), index);
             }
         }
     }
 
     private void processFile(
             final String fileName,
-            final FileVisitor<? super Path> visitor,
+            final FileTreeTraverser traverser,
+            final HashFileVisitor visitor,
             final Runnable errorAction
     ) {
         try {
             final Path path = Paths.get(fileName);
             if (Files.exists(path)) {
-                Files.walkFileTree(path, EnumSet.noneOf(FileVisitOption.class), maxDepth, visitor);
+                visitor.walk(traverser, path, maxDepth);
                 return;
             } else {
                 logger.log(Level.WARNING, "Not found: {0}:", fileName);
@@ -187,4 +668,11 @@ public class Walker {
         }
         errorAction.run();
     }
-}
+
+    // BINARY and DEFLATE are read back with BinaryManifestReader
+    public enum OutputFormat {
+        TEXT,
+        BINARY,
+        DEFLATE
+    }
+}
\ No newline at end of file
@@ -0,0 +1,134 @@
+package info.kgeorgiy.ja.koloskov.walk;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+public class XxHash64FileHasher extends ChannelFileHasher {
+
+    public static final String ALGORITHM = "XXH64";
+    private static final int DIGEST_LENGTH = Long.BYTES;
+    private static final int STRIPE = 32;
+    private static final long PRIME1 = 0x9E3779B185EBCA87L;
+    private static final long PRIME2 = 0xC2B2AE3D27D4EB4FL;
+    private static final long PRIME3 = 0x165667B19E3779F9L;
+    private static final long PRIME4 = 0x85EBCA77C2B2AE63L;
+    private static final long PRIME5 = 0x27D4EB2F165667C5L;
+
+    private final long seed;
+    private final ByteBuffer stripe = ByteBuffer.allocate(STRIPE).order(ByteOrder.LITTLE_ENDIAN);
+    private final byte[] digest = new byte[DIGEST_LENGTH];
+    private long v1;
+    private long v2;
+    private long v3;
+    private long v4;
+    private long totalLength;
+
+    public XxHash64FileHasher(final int hashLength, final ReadStrategy strategy) {
+        this(0, hashLength, strategy);
+    }
+
+    public XxHash64FileHasher(final long seed, final int hashLength, final ReadStrategy strategy) {
+        super(hashLength < 0 ? DIGEST_LENGTH : Math.min(hashLength, DIGEST_LENGTH), strategy);
+        this.seed = seed;
+    }
+
+    @Override
+    protected void reset() {
+        v1 = seed + PRIME1 + PRIME2;
+        v2 = seed + PRIME2;
+        v3 = seed;
+        v4 = seed - PRIME1;
+        totalLength = 0;
+        stripe.clear();
+    }
+
+    // The caller's buffer gets its byte order back, as a composite hasher passes it on
+    @Override
+    protected void update(final ByteBuffer data) {
+        final ByteOrder order = data.order();
+        data.order(ByteOrder.LITTLE_ENDIAN);
+        try {
+            updateLittleEndian(data);
+        } finally {
+            data.order(order);
+        }
+    }
+
+    private void updateLittleEndian(final ByteBuffer data) {
+        totalLength += data.remaining();
+
+        if (stripe.position() > 0) {
+            while (stripe.hasRemaining() && data.hasRemaining()) {
+                stripe.put(data.get());
+            }
+            if (stripe.hasRemaining()) {
+                return;
+            }
+            stripe.flip();
+            consume(stripe);
+            stripe.clear();
+        }
+
+        while (data.remaining() >= STRIPE) {
+            consume(data);
+        }
+        stripe.put(data);
+    }
+
+    private void consume(final ByteBuffer data) {
+        v1 = round(v1, data.getLong());
+        v2 = round(v2, data.getLong());
+        v3 = round(v3, data.getLong());
+        v4 = round(v4, data.getLong());
+    }
+
+    @Override
+    protected byte[] digest() {
+        long hash;
+        if (totalLength >= STRIPE) {
+            hash = Long.rotateLeft(v1, 1) + Long.rotateLeft(v2, 7)
+                    + Long.rotateLeft(v3, 12) + Long.rotateLeft(v4, 18);
+            hash = mergeRound(hash, v1);
+            hash = mergeRound(hash, v2);
+            hash = mergeRound(hash, v3);
+            hash = mergeRound(hash, v4);
+        } else {
+            hash = seed + PRIME5;
+        }
+        hash += totalLength;
+
+        stripe.flip();
+        while (stripe.remaining() >= Long.BYTES) {
+            hash ^= round(0, stripe.getLong());
+            hash = Long.rotateLeft(hash, 27) * PRIME1 + PRIME4;
+        }
+        if (stripe.remaining() >= Integer.BYTES) {
+            hash ^= (stripe.getInt() & 0xFFFFFFFFL) * PRIME1;
+            hash = Long.rotateLeft(hash, 23) * PRIME2 + PRIME3;
+        }
+        while (stripe.hasRemaining()) {
+            hash ^= (stripe.get() & 0xFFL) * PRIME5;
+            hash = Long.rotateLeft(hash, 11) * PRIME1;
+        }
+        stripe.clear();
+
+        hash ^= hash >>> 33;
+        hash *= PRIME2;
+        hash ^= hash >>> 29;
+        hash *= PRIME3;
+        hash ^= hash >>> 32;
+        for (int i = DIGEST_LENGTH - 1; i >= 0; i--) {
+            digest[i] = (byte) hash;
+            hash >>>= Byte.SIZE;
+        }
+        return digest;
+    }
+
+    private static long round(final long acc, final long input) {
+        return Long.rotateLeft(acc + input * PRIME2, 31) * PRIME1;
+    }
+
+    private static long mergeRound(final long acc, final long value) {
+        return (acc ^ round(0, value)) * PRIME1 + PRIME4;
+    }
+}
\ No newline at end of file
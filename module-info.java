@@ -1,6 +1,7 @@
 open module java_solutions {
     requires java.compiler;
     requires java.logging;
+    requires java.management;
 
     requires info.kgeorgiy.java.advanced.implementor;
     requires info.kgeorgiy.java.advanced.arrayset;